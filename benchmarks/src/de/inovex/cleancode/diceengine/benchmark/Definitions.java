@@ -0,0 +1,21 @@
+package de.inovex.cleancode.diceengine.benchmark;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.Dice.DiceDefinition;
+
+/**
+ * Parses the benchmark parameters of the form {@code <dice>d<sides>}.
+ */
+final class Definitions {
+
+    private Definitions() {
+    }
+
+    static DiceDefinition parse(String definition) {
+
+        int separator = definition.indexOf('d');
+        return Dice.define()
+            .withDice(Integer.parseInt(definition.substring(0, separator)))
+            .withSides(Integer.parseInt(definition.substring(separator + 1)));
+    }
+}
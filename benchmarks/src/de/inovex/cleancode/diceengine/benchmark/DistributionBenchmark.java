@@ -0,0 +1,56 @@
+package de.inovex.cleancode.diceengine.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.Distribution;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributionBenchmark {
+
+    @Param({"1d6", "3d6", "10d10", "100d6", "500d20"})
+    private String definition;
+
+    private Dice dice;
+
+    @Setup
+    public void setUp() {
+
+        dice = Definitions.parse(definition).create();
+    }
+
+    /**
+     * Builds the distribution from scratch, bypassing all caches.
+     */
+    @Benchmark
+    public Distribution build() {
+
+        return Distribution.uniformSum(dice.sides(), dice.dice()).shift(dice.mod());
+    }
+
+    /**
+     * Requests the distribution as any caller would, which is kept by the dice after the first call.
+     */
+    @Benchmark
+    public Distribution cached() {
+
+        return dice.distribution();
+    }
+}
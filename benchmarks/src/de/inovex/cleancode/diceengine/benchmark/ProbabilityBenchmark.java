@@ -0,0 +1,89 @@
+package de.inovex.cleancode.diceengine.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.probability.ResultCategory;
+import de.inovex.cleancode.diceengine.probability.ResultProbabilityCalculator;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbabilityBenchmark {
+
+    @Param({"1d20", "3d6,2d8", "4d6,2d10,1d20,3d4", "40d6,20d10,10d20", "100d6,50d20,25d100"})
+    private String pool;
+
+    private Dice[] dice;
+
+    private ResultCategory category;
+
+    private List<ResultCategory> categories;
+
+    private final ResultProbabilityCalculator uncachedCalculator = new ResultProbabilityCalculator(0);
+
+    private final ResultProbabilityCalculator cachedCalculator = new ResultProbabilityCalculator();
+
+    @Setup
+    public void setUp() {
+
+        String[] definitions = pool.split(",");
+        dice = new Dice[definitions.length];
+        int mean = 0;
+        for (int i = 0; i < definitions.length; i++) {
+            dice[i] = Definitions.parse(definitions[i]).create();
+            mean += (dice[i].minimum() + dice[i].maximum()) / 2;
+        }
+        category = ResultCategory.ge(mean);
+        categories = List.of(ResultCategory.lt(mean), ResultCategory.eq(mean), ResultCategory.ge(mean));
+    }
+
+    /**
+     * Answers the query from scratch: neither the calculator nor the cache shared by all dice keep distributions
+     * between invocations.
+     */
+    @Benchmark
+    public double uncached(EmptyCache emptyCache) {
+
+        return uncachedCalculator.probability(category, dice);
+    }
+
+    @Benchmark
+    public double cached() {
+
+        return cachedCalculator.probability(category, dice);
+    }
+
+    @Benchmark
+    public double[] batch() {
+
+        return cachedCalculator.probabilities(categories, dice);
+    }
+
+    @State(Scope.Thread)
+    public static class EmptyCache {
+
+        @Setup(Level.Invocation)
+        public void clear() {
+
+            Dice.distributionCache().clear();
+        }
+    }
+}
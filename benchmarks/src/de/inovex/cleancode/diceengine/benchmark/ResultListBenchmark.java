@@ -0,0 +1,48 @@
+package de.inovex.cleancode.diceengine.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.Result;
+
+/**
+ * Results of dice whose counts fit into {@link Result}, larger dice only provide their distribution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultListBenchmark {
+
+    @Param({"1d6", "3d6", "10d10", "20d6"})
+    private String definition;
+
+    private Dice dice;
+
+    @Setup
+    public void setUp() {
+
+        dice = Definitions.parse(definition).create();
+    }
+
+    @Benchmark
+    public List<Result> resultList() {
+
+        return dice.resultDistribution();
+    }
+}
@@ -0,0 +1,71 @@
+package de.inovex.cleancode.diceengine.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.inovex.cleancode.diceengine.Dice;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RollBenchmark {
+
+    @Param({"1d20", "3d6", "20d6", "200d6"})
+    private String definition;
+
+    @Param({"1024"})
+    private int bulkSize;
+
+    private Dice dice;
+
+    private int[] target;
+
+    @Setup
+    public void setUp() {
+
+        dice = Definitions.parse(definition).create();
+        target = new int[bulkSize];
+    }
+
+    @Benchmark
+    public int singleRoll() {
+
+        return dice.throwDice();
+    }
+
+    @Benchmark
+    public int[] bulkRoll() {
+
+        dice.throwDice(target);
+        return target;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int concurrentRollOnFourThreads() {
+
+        return dice.throwDice();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public int concurrentRollOnAllThreads() {
+
+        return dice.throwDice();
+    }
+}
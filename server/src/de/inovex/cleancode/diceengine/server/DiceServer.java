@@ -0,0 +1,446 @@
+package de.inovex.cleancode.diceengine.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.DiceExpression;
+import de.inovex.cleancode.diceengine.Distribution;
+import de.inovex.cleancode.diceengine.probability.ResultCategory;
+import de.inovex.cleancode.diceengine.probability.ResultFilter;
+import de.inovex.cleancode.diceengine.probability.ResultProbabilityCalculator;
+
+/**
+ * HTTP service of rolls, distributions and probabilities of dice expressions, on the HTTP server of the JDK.
+ * <p>
+ * All endpoints take their parameters from the query or from a form encoded body and answer JSON. Every request may
+ * contain up to 100 {@code expression} parameters, e.g. {@code 3d6%2B2}, which are answered in their order:
+ * <ul>
+ * <li>{@code /roll?expression=..&times=10} rolls each expression the given number of times, once by default</li>
+ * <li>{@code /distribution?expression=..} gives the probability of each result from the minimal one on</li>
+ * <li>{@code /probability?expression=..&category=ge:10&category=between:3:5} gives the probability of each category
+ * of each expression, categories are {@code eq}, {@code lt}, {@code le}, {@code gt}, {@code ge} with a value and
+ * {@code between} with two values</li>
+ * </ul>
+ * The work of a request is bounded, a request rolls at most ten million dice, and distributions are limited to 65536
+ * results whose exact counts are cheap, e.g. 100d6 but not 5000d2. Larger pools are answered by {@code /probability},
+ * which takes up to 100 categories and expressions of at most 2^20 results or of at least 100 dice, whose
+ * probabilities are approximated. Bodies are limited to 64 KiB.
+ * <p>
+ * Compiled expressions, distributions and pools of the calculator are cached by the engine, so repeated requests cost
+ * little more than their lookup. Requests are handled on a virtual thread each if the runtime supports them, on a
+ * cached thread pool otherwise.
+ */
+public final class DiceServer implements AutoCloseable {
+
+    private static final int DEFAULT_PORT = 8080;
+
+    private static final int MAX_ROLLS = 10_000;
+
+    private static final int MAX_EXPRESSIONS = 100;
+
+    private static final int MAX_CATEGORIES = 100;
+
+    private static final int MAX_BODY_SIZE = 1 << 16;
+
+    private static final long MAX_ROLLED_DICE = 10_000_000;
+
+    private static final int MAX_DISTRIBUTION_SIZE = 1 << 16;
+
+    // results times bits of their counts, which bounds the BigInteger arithmetic of exact distributions
+    private static final double MAX_DISTRIBUTION_COST = 1 << 20;
+
+    private static final int MAX_PROBABILITY_SIZE = 1 << 20;
+
+    // pools of that many dice are approximated by the calculator rather than counted, whatever their number of results
+    private static final int MIN_APPROXIMATED_DICE = 100;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final ResultProbabilityCalculator calculator;
+
+    private DiceServer(HttpServer server, ExecutorService executor, ResultProbabilityCalculator calculator) {
+
+        this.server = server;
+        this.executor = executor;
+        this.calculator = calculator;
+        server.createContext("/roll", exchange -> handle(exchange, this::roll));
+        server.createContext("/distribution", exchange -> handle(exchange, this::distribution));
+        server.createContext("/probability", exchange -> handle(exchange, this::probability));
+        server.setExecutor(executor);
+    }
+
+    /**
+     * Serves on the port given as first argument, 8080 by default.
+     */
+    public static void main(String[] args) throws IOException {
+
+        DiceServer server = define().withPort(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT).create();
+        server.start();
+    }
+
+    public static ServerDefinition define() {
+
+        return new ServerDefinition();
+    }
+
+    public void start() {
+
+        server.start();
+    }
+
+    /**
+     * @return the bound port, which is chosen by the system if the server was defined with port zero.
+     */
+    public int port() {
+
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits up to one second for running requests.
+     */
+    @Override
+    public void close() {
+
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private String roll(Map<String, List<String>> parameters) {
+
+        int times = Integer.parseInt(single(parameters, "times", "1"));
+        if (times < 0 || times > MAX_ROLLS) {
+            throw new IllegalArgumentException(
+                "Number of rolls must be between zero and " + MAX_ROLLS + ". Invalid number: " + times);
+        }
+        List<DiceExpression> expressions = expressions(parameters);
+        long dice = 0;
+        for (DiceExpression expression : expressions) {
+            for (Dice d : expression.dice()) {
+                dice += d.dice();
+            }
+        }
+        if (dice * times > MAX_ROLLED_DICE) {
+            throw new IllegalArgumentException(
+                "At most " + MAX_ROLLED_DICE + " dice can be rolled per request. Invalid number: " + dice * times);
+        }
+        return answer(expressions, "rolls", expression -> {
+            StringBuilder rolls = new StringBuilder("[");
+            for (int i = 0; i < times; i++) {
+                rolls.append(i == 0 ? "" : ",").append(expression.throwDice());
+            }
+            return rolls.append(']').toString();
+        });
+    }
+
+    private String distribution(Map<String, List<String>> parameters) {
+
+        return answer(expressions(parameters), "probabilities", expression -> {
+            long results = (long) expression.maximum() - expression.minimum() + 1;
+            if (results > MAX_DISTRIBUTION_SIZE) {
+                throw new IllegalArgumentException("Too many possible results of " + expression + ": " + results);
+            }
+            double bits = 0;
+            for (Dice d : expression.dice()) {
+                // constant expressions consist of a dice without any dice
+                bits += d.dice() == 0 ? 0 : d.dice() * Math.log(d.sides()) / Math.log(2);
+            }
+            if (bits * results > MAX_DISTRIBUTION_COST) {
+                throw new IllegalArgumentException(
+                    "Distribution of " + expression + " is too large to be counted exactly, ask for probabilities.");
+            }
+            Distribution distribution = expression.distribution();
+            StringBuilder probabilities = new StringBuilder("{\"minimum\":").append(distribution.minimum())
+                .append(",\"values\":[");
+            double[] values = distribution.probabilities();
+            for (int i = 0; i < values.length; i++) {
+                probabilities.append(i == 0 ? "" : ",").append(values[i]);
+            }
+            return probabilities.append("]}").toString();
+        });
+    }
+
+    private String probability(Map<String, List<String>> parameters) {
+
+        List<String> texts = parameters.getOrDefault("category", List.of());
+        if (texts.size() > MAX_CATEGORIES) {
+            throw new IllegalArgumentException(
+                "At most " + MAX_CATEGORIES + " categories can be given. Invalid number: " + texts.size());
+        }
+        List<ResultFilter> categories = new ArrayList<>(texts.size());
+        for (String category : texts) {
+            categories.add(category(category));
+        }
+        List<DiceExpression> expressions = expressions(parameters);
+        for (DiceExpression expression : expressions) {
+            checkProbabilityCost(expression);
+        }
+        return answer(expressions, "probabilities", expression -> {
+            StringBuilder probabilities = new StringBuilder("[");
+            double[] values = calculator.probabilities(categories, expression);
+            for (int i = 0; i < values.length; i++) {
+                probabilities.append(i == 0 ? "" : ",").append(values[i]);
+            }
+            return probabilities.append(']').toString();
+        });
+    }
+
+    /**
+     * Rejects expressions whose probabilities would be counted over more than {@link #MAX_PROBABILITY_SIZE} results,
+     * e.g. 1d2000000000, whose counts fit into longs and would be counted exactly by the calculator.
+     */
+    private static void checkProbabilityCost(DiceExpression expression) {
+
+        long dice = 0;
+        for (Dice d : expression.dice()) {
+            // dice of a single side add no bits to the counts, so they never make the calculator approximate
+            dice += d.sides() > 1 ? d.dice() : 0;
+        }
+        long results = (long) expression.maximum() - expression.minimum() + 1;
+        if (results > MAX_PROBABILITY_SIZE && dice < MIN_APPROXIMATED_DICE) {
+            throw new IllegalArgumentException("Too many possible results of " + expression + " of less than "
+                + MIN_APPROXIMATED_DICE + " dice: " + results);
+        }
+    }
+
+    private static List<DiceExpression> expressions(Map<String, List<String>> parameters) {
+
+        List<String> texts = parameters.getOrDefault("expression", List.of());
+        if (texts.isEmpty()) {
+            throw new IllegalArgumentException("At least one expression must be given.");
+        }
+        if (texts.size() > MAX_EXPRESSIONS) {
+            throw new IllegalArgumentException(
+                "At most " + MAX_EXPRESSIONS + " expressions can be given. Invalid number: " + texts.size());
+        }
+        List<DiceExpression> expressions = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            expressions.add(DiceExpression.compile(text));
+        }
+        return expressions;
+    }
+
+    /**
+     * @return a JSON array of an object per expression, which holds the expression and the given answer.
+     */
+    private static String answer(
+        List<DiceExpression> expressions, String name, Function<DiceExpression, String> answer) {
+
+        StringBuilder json = new StringBuilder("[");
+        for (DiceExpression expression : expressions) {
+            json.append(json.length() == 1 ? "" : ",")
+                .append("{\"expression\":\"").append(expression).append("\",\"")
+                .append(name).append("\":").append(answer.apply(expression)).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static ResultFilter category(String category) {
+
+        String[] parts = category.split(":");
+        try {
+            if (parts.length == 3 && parts[0].equals("between")) {
+                return ResultCategory.between(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            }
+            if (parts.length == 2) {
+                int value = Integer.parseInt(parts[1]);
+                switch (parts[0]) {
+                    case "eq":
+                        return ResultCategory.eq(value);
+                    case "lt":
+                        return ResultCategory.lt(value);
+                    case "le":
+                        return ResultCategory.le(value);
+                    case "gt":
+                        return ResultCategory.gt(value);
+                    case "ge":
+                        return ResultCategory.ge(value);
+                    default:
+                        break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            // reported as invalid category below
+        }
+        throw new IllegalArgumentException("Invalid category: " + category);
+    }
+
+    private static String single(Map<String, List<String>> parameters, String name, String defaultValue) {
+
+        List<String> values = parameters.getOrDefault(name, List.of());
+        if (values.size() > 1) {
+            throw new IllegalArgumentException("Parameter must be given at most once. Invalid parameter: " + name);
+        }
+        return values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+    private static void handle(HttpExchange exchange, Function<Map<String, List<String>>, String> endpoint)
+        throws IOException {
+
+        int status;
+        String body;
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("POST")) {
+                status = 405;
+                body = error("Method not allowed: " + method);
+            } else if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                status = 404;
+                body = error("Not found: " + exchange.getRequestURI().getPath());
+            } else {
+                byte[] form;
+                try (InputStream in = exchange.getRequestBody()) {
+                    // one more byte than allowed tells too large bodies apart without reading them completely
+                    form = in.readNBytes(MAX_BODY_SIZE + 1);
+                }
+                if (form.length > MAX_BODY_SIZE) {
+                    status = 413;
+                    body = error("Request body exceeds " + MAX_BODY_SIZE + " bytes.");
+                } else {
+                    Map<String, List<String>> parameters = new LinkedHashMap<>();
+                    parse(exchange.getRequestURI().getRawQuery(), parameters);
+                    parse(new String(form, StandardCharsets.UTF_8), parameters);
+                    status = 200;
+                    body = endpoint.apply(parameters);
+                }
+            }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            // number format exceptions of parameters are illegal arguments as well
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Internal error: " + e);
+        } catch (OutOfMemoryError e) {
+            // the request is lost, but the exchange is answered and the memory of the request is released
+            status = 503;
+            body = error("Insufficient memory to answer the request.");
+        }
+
+        byte[] response = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private static void parse(String form, Map<String, List<String>> parameters) {
+
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            if (!pair.isEmpty()) {
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? pair : pair.substring(0, separator);
+                String value = separator < 0 ? "" : pair.substring(separator + 1);
+                parameters.computeIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), key -> new ArrayList<>())
+                    .add(URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static String error(String message) {
+
+        StringBuilder json = new StringBuilder("{\"error\":\"");
+        for (char c : String.valueOf(message).toCharArray()) {
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                // control characters, e.g. of a decoded expression, are not allowed in JSON strings
+                json.append("\\u%04x".formatted((int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\"}").toString();
+    }
+
+    /**
+     * @return an executor starting a virtual thread per request, which falls back to a cached thread pool on runtimes
+     * without virtual threads.
+     */
+    private static ExecutorService threadPerRequest() {
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static class ServerDefinition {
+
+        private String host = "localhost";
+        private int port = DEFAULT_PORT;
+        private int backlog = 0;
+        private ResultProbabilityCalculator calculator;
+
+        private ServerDefinition() {
+        }
+
+        public ServerDefinition withHost(String host) {
+
+            this.host = host;
+            return this;
+        }
+
+        /**
+         * @param port port to bind, zero lets the system choose a free port
+         */
+        public ServerDefinition withPort(int port) {
+
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * @param backlog maximal number of queued incoming connections, zero for the default of the system
+         */
+        public ServerDefinition withBacklog(int backlog) {
+
+            this.backlog = backlog;
+            return this;
+        }
+
+        public ServerDefinition withCalculator(ResultProbabilityCalculator calculator) {
+
+            this.calculator = calculator;
+            return this;
+        }
+
+        /**
+         * Binds the port, the server accepts requests after {@link DiceServer#start()}.
+         */
+        public DiceServer create() throws IOException {
+
+            if (port < 0 || port > 0xFFFF) {
+                throw new IllegalArgumentException("Port must be between 0 and 65535. Invalid port: " + port);
+            }
+            if (backlog < 0) {
+                throw new IllegalArgumentException("Backlog cannot be negative. Invalid backlog: " + backlog);
+            }
+            HttpServer server = HttpServer.create(new InetSocketAddress(host, port), backlog);
+            return new DiceServer(
+                server, threadPerRequest(), calculator != null ? calculator : new ResultProbabilityCalculator());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package de.inovex.cleancode.diceengine.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DiceServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private DiceServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+
+        server = DiceServer.define().withPort(0).create();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+
+        server.close();
+    }
+
+    @Test
+    void rollsBatchOfExpressions() throws Exception {
+
+        HttpResponse<String> response = get("/roll?expression=3d6%2B2&expression=d20&expression=7&times=50");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("application/json; charset=utf-8");
+        assertThat(response.body()).startsWith("[{\"expression\":\"3d6+2\",\"rolls\":[")
+            .contains("{\"expression\":\"1d20\",\"rolls\":[")
+            .endsWith("{\"expression\":\"7\",\"rolls\":[" + "7,".repeat(49) + "7]}]");
+
+        Matcher rolls = Pattern.compile("\"rolls\":\\[([^]]*)]").matcher(response.body());
+        assertThat(rolls.find()).isTrue();
+        assertThat(rolls.group(1).split(","))
+            .hasSize(50)
+            .allSatisfy(roll -> assertThat(Integer.parseInt(roll)).isBetween(5, 20));
+    }
+
+    @Test
+    void answersDistributions() throws Exception {
+
+        HttpResponse<String> response = get("/distribution?expression=2d2-1");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body())
+            .isEqualTo("[{\"expression\":\"2d2-1\",\"probabilities\":{\"minimum\":1,\"values\":[0.25,0.5,0.25]}}]");
+    }
+
+    @Test
+    void answersProbabilitiesOfFormBody() throws Exception {
+
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(uri("/probability"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                    "expression=2d6&expression=1d4%2B1&category=eq:7&category=between:2:3&category=gt:100"))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("[{\"expression\":\"2d6\",\"probabilities\":["
+            + 6 / 36.0 + "," + 3 / 36.0 + ",0.0]},{\"expression\":\"1d4+1\",\"probabilities\":[0.0,0.5,0.0]}]");
+    }
+
+    @Test
+    void servesConcurrentRequests() throws Exception {
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            responses.add(client.sendAsync(
+                HttpRequest.newBuilder(uri("/probability?expression=" + (i % 20 + 1) + "d6&category=ge:10")).build(),
+                HttpResponse.BodyHandlers.ofString()));
+        }
+
+        assertThat(responses).allSatisfy(response -> assertThat(response.join().statusCode()).isEqualTo(200));
+    }
+
+    @Test
+    void rejectsInvalidRequests() throws Exception {
+
+        assertThat(get("/roll").statusCode()).isEqualTo(400);
+        assertThat(get("/roll?expression=3x6").body()).startsWith("{\"error\":");
+        assertThat(get("/roll?expression=d6&times=-1").statusCode()).isEqualTo(400);
+        assertThat(get("/roll?expression=d6&times=many").statusCode()).isEqualTo(400);
+        assertThat(get("/probability?expression=d6&category=near:3").statusCode()).isEqualTo(400);
+        assertThat(get("/distribution?expression=1000d1000").statusCode()).isEqualTo(400);
+        assertThat(get("/distribution?expression=5000d2").statusCode()).isEqualTo(400);
+        assertThat(get("/distribution?expression=7").statusCode()).isEqualTo(200);
+        assertThat(get("/roll?expression=1000000000d2&times=10000").statusCode()).isEqualTo(400);
+        assertThat(get("/roll?expression=1001d6&times=10000").statusCode()).isEqualTo(400);
+        assertThat(get("/roll?" + "expression=d6&".repeat(101)).statusCode()).isEqualTo(400);
+        assertThat(get("/probability?expression=1000000000d2&category=ge:10").statusCode()).isEqualTo(200);
+        assertThat(get("/rolls").statusCode()).isEqualTo(404);
+        assertThat(client.send(HttpRequest.newBuilder(uri("/roll?expression=d6")).DELETE().build(),
+            HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(405);
+    }
+
+    @Test
+    void boundsWorkOfProbabilities() throws Exception {
+
+        assertThat(get("/probability?expression=1d2000000000&category=ge:10").statusCode()).isEqualTo(400);
+        assertThat(get("/probability?expression=100d1%2B1d2000000000&category=ge:10").statusCode()).isEqualTo(400);
+        assertThat(get("/probability?expression=2d500000&category=ge:500001").statusCode()).isEqualTo(200);
+        assertThat(get("/probability?expression=d6&" + "category=ge:3&".repeat(101)).statusCode()).isEqualTo(400);
+
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(uri("/probability"))
+                .POST(HttpRequest.BodyPublishers.ofString("expression=d6&category=ge:3&".repeat(3000)))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+        assertThat(response.statusCode()).isEqualTo(413);
+    }
+
+    @Test
+    void escapesControlCharactersOfErrors() throws Exception {
+
+        HttpResponse<String> response = get("/roll?expression=d6%0A%22x%5C");
+
+        assertThat(response.statusCode()).isEqualTo(400);
+        assertThat(response.body()).contains("d6\\u000a\\\"x\\\\").doesNotContain("\n");
+    }
+
+    @Test
+    void cannotCreateInvalidServer() {
+
+        assertThatThrownBy(() -> DiceServer.define().withPort(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceServer.define().withBacklog(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+
+        return client.send(HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+
+        return URI.create("http://localhost:" + server.port() + path);
+    }
+}
@@ -0,0 +1,87 @@
+package de.inovex.cleancode.diceengine;
+
+/**
+ * Walker's alias table of a distribution, built by Vose's method. Every sample costs two random ints regardless of
+ * the number of possible results: one chooses a column, the other whether to take the column's own result or its
+ * alias.
+ */
+final class AliasTable {
+
+    static final int PRECISION = 1 << 30;
+
+    private final int minimum;
+
+    private final int[] thresholds;
+
+    private final int[] aliases;
+
+    AliasTable(Distribution distribution) {
+
+        double[] probabilities = distribution.probabilities();
+        int n = probabilities.length;
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = probabilities[i] * n;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        this.minimum = distribution.minimum();
+        this.thresholds = new int[n];
+        this.aliases = new int[n];
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            thresholds[less] = (int) Math.round(scaled[less] * PRECISION);
+            aliases[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // the remaining columns are full, apart from rounding errors
+        while (largeCount > 0) {
+            int column = large[--largeCount];
+            thresholds[column] = PRECISION;
+            aliases[column] = column;
+        }
+        while (smallCount > 0) {
+            int column = small[--smallCount];
+            thresholds[column] = PRECISION;
+            aliases[column] = column;
+        }
+    }
+
+    int sample(RandomInt rnd) {
+
+        int column = rnd.next(thresholds.length);
+        if (thresholds[column] == PRECISION || rnd.next(PRECISION) < thresholds[column]) {
+            return minimum + column;
+        }
+        return minimum + aliases[column];
+    }
+
+    int size() {
+
+        return thresholds.length;
+    }
+
+    int threshold(int column) {
+
+        return thresholds[column];
+    }
+
+    int alias(int column) {
+
+        return aliases[column];
+    }
+}
@@ -0,0 +1,480 @@
+package de.inovex.cleancode.diceengine;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Polynomial arithmetic on primitive count arrays. Index {@code i} of a count array holds the number of combinations
+ * resulting in the {@code i}-th smallest possible value.
+ * <p>
+ * Small operands are multiplied directly, larger ones by a number-theoretic transform over three primes with
+ * chinese remainder reconstruction, which is exact as long as the resulting counts fit into a {@code long}.
+ * Counts beyond that range are kept as {@link BigInteger} and multiplied by Kronecker substitution, i.e. packed into
+ * a single large number whose product is computed by the sub-quadratic algorithms of {@link BigInteger#multiply}.
+ * Probability arrays ({@code double[]}) use a fast fourier transform above the same threshold and are approximate.
+ */
+public final class Convolution {
+
+    private static final int TRANSFORM_THRESHOLD = 64;
+
+    private static final int SLIDING_WINDOW_DICE_LIMIT = 48;
+
+    private static final int MAX_NTT_SIZE = 1 << 23;
+
+    private static final long[] NTT_PRIMES = {998244353L, 167772161L, 469762049L};
+
+    private static final long NTT_ROOT = 3;
+
+    private Convolution() {
+    }
+
+    /**
+     * @param sides number of sides of each dice
+     * @param dice number of dice
+     * @return the combination counts of all sums of the given dice, starting with the minimal sum.
+     * @throws ArithmeticException if the number of combinations exceeds the {@code long} range
+     */
+    public static long[] uniformSum(int sides, int dice) {
+
+        long overall = 1;
+        for (int d = 0; d < dice; d++) {
+            overall = Math.multiplyExact(overall, sides);
+        }
+
+        if (dice <= SLIDING_WINDOW_DICE_LIMIT) {
+            long[] counts = {1};
+            for (int d = 0; d < dice; d++) {
+                counts = addUniform(counts, sides);
+            }
+            return counts;
+        }
+        long[] single = new long[sides];
+        Arrays.fill(single, 1);
+        return power(single, dice);
+    }
+
+    /**
+     * @param sides number of sides of each dice
+     * @param dice number of dice
+     * @return the combination counts of all sums of the given dice without any range restriction.
+     */
+    public static BigInteger[] uniformSumExactly(int sides, int dice) {
+
+        BigInteger[] single = new BigInteger[sides];
+        Arrays.fill(single, BigInteger.ONE);
+        return power(single, dice);
+    }
+
+    /**
+     * @param sides number of sides of each dice
+     * @param dice number of dice
+     * @return the approximate probabilities of all sums of the given dice, starting with the minimal sum.
+     */
+    public static double[] uniformSumProbabilities(int sides, int dice) {
+
+        double[] single = new double[sides];
+        Arrays.fill(single, 1.0 / sides);
+        return power(single, dice);
+    }
+
+    /**
+     * Convolves the counts with a single uniform dice by a sliding window sum, so every step costs O(length + sides).
+     */
+    static long[] addUniform(long[] counts, int sides) {
+
+        long[] next = new long[Math.toIntExact((long) counts.length + sides - 1)];
+        long window = 0;
+        for (int i = 0; i < next.length; i++) {
+            if (i < counts.length) {
+                window += counts[i];
+            }
+            if (i >= sides) {
+                window -= counts[i - sides];
+            }
+            next[i] = window;
+        }
+        return next;
+    }
+
+    /**
+     * @return the counts of the sum of two independent results.
+     * @throws ArithmeticException if the product of the overall counts exceeds the {@code long} range
+     */
+    public static long[] convolve(long[] a, long[] b) {
+
+        // every single count is bounded by the product of both overall counts
+        Math.multiplyExact(sum(a), sum(b));
+
+        int length = Math.toIntExact((long) a.length + b.length - 1);
+        if (Math.min(a.length, b.length) <= TRANSFORM_THRESHOLD || transformSize(length) > MAX_NTT_SIZE) {
+            return convolveDirectly(a, b, length);
+        }
+        return convolveByTransform(a, b, length);
+    }
+
+    /**
+     * @return the counts of the sum of {@code exponent} independent results, computed by repeated squaring.
+     * @throws ArithmeticException if the overall count exceeds the {@code long} range
+     */
+    public static long[] power(long[] base, int exponent) {
+
+        long[] result = {1};
+        long[] square = base;
+        for (int e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) == 1) {
+                result = convolve(result, square);
+            }
+            if (e > 1) {
+                square = convolve(square, square);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the probabilities of the sum of two independent results.
+     */
+    public static double[] convolve(double[] a, double[] b) {
+
+        int length = Math.toIntExact((long) a.length + b.length - 1);
+        if (Math.min(a.length, b.length) <= TRANSFORM_THRESHOLD) {
+            return convolveDirectly(a, b, length);
+        }
+        return convolveByTransform(a, b, length);
+    }
+
+    /**
+     * @return the probabilities of the sum of {@code exponent} independent results, computed by repeated squaring.
+     */
+    public static double[] power(double[] base, int exponent) {
+
+        double[] result = {1.0};
+        double[] square = base;
+        for (int e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) == 1) {
+                result = convolve(result, square);
+            }
+            if (e > 1) {
+                square = convolve(square, square);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the counts of the sum of two independent results.
+     */
+    public static BigInteger[] convolve(BigInteger[] a, BigInteger[] b) {
+
+        int length = Math.toIntExact((long) a.length + b.length - 1);
+        if (Math.min(a.length, b.length) <= TRANSFORM_THRESHOLD) {
+            return convolveDirectly(a, b, length);
+        }
+
+        // every count is bounded by the shorter length times the maximal counts of both operands
+        int slotBits = maxBitLength(a) + maxBitLength(b) + 32 - Integer.numberOfLeadingZeros(Math.min(a.length, b.length));
+        int slotBytes = (slotBits + 7) / 8;
+        BigInteger product = pack(a, slotBytes).multiply(pack(b, slotBytes));
+        return unpack(product, slotBytes, length);
+    }
+
+    /**
+     * @return the counts of the sum of {@code exponent} independent results, computed by repeated squaring.
+     */
+    public static BigInteger[] power(BigInteger[] base, int exponent) {
+
+        BigInteger[] result = {BigInteger.ONE};
+        BigInteger[] square = base;
+        for (int e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) == 1) {
+                result = convolve(result, square);
+            }
+            if (e > 1) {
+                square = convolve(square, square);
+            }
+        }
+        return result;
+    }
+
+    static BigInteger[] exactly(long[] counts) {
+
+        BigInteger[] exact = new BigInteger[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            exact[i] = BigInteger.valueOf(counts[i]);
+        }
+        return exact;
+    }
+
+    static long[] inLongRange(BigInteger[] counts) {
+
+        long[] primitive = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            primitive[i] = counts[i].longValueExact();
+        }
+        return primitive;
+    }
+
+    private static long sum(long[] counts) {
+
+        long sum = 0;
+        for (long count : counts) {
+            sum = Math.addExact(sum, count);
+        }
+        return sum;
+    }
+
+    private static int transformSize(int length) {
+
+        return length <= 1 ? 1 : Integer.highestOneBit(length - 1) << 1;
+    }
+
+    private static long[] convolveDirectly(long[] a, long[] b, int length) {
+
+        long[] result = new long[length];
+        for (int i = 0; i < a.length; i++) {
+            long factor = a[i];
+            if (factor != 0) {
+                for (int j = 0; j < b.length; j++) {
+                    result[i + j] += factor * b[j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static double[] convolveDirectly(double[] a, double[] b, int length) {
+
+        double[] result = new double[length];
+        for (int i = 0; i < a.length; i++) {
+            double factor = a[i];
+            if (factor != 0.0) {
+                for (int j = 0; j < b.length; j++) {
+                    result[i + j] += factor * b[j];
+                }
+            }
+        }
+        return result;
+    }
+
+    private static BigInteger[] convolveDirectly(BigInteger[] a, BigInteger[] b, int length) {
+
+        BigInteger[] result = new BigInteger[length];
+        Arrays.fill(result, BigInteger.ZERO);
+        for (int i = 0; i < a.length; i++) {
+            BigInteger factor = a[i];
+            if (factor.signum() != 0) {
+                for (int j = 0; j < b.length; j++) {
+                    result[i + j] = result[i + j].add(factor.multiply(b[j]));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static int maxBitLength(BigInteger[] values) {
+
+        int bits = 0;
+        for (BigInteger value : values) {
+            bits = Math.max(bits, value.bitLength());
+        }
+        return bits;
+    }
+
+    private static BigInteger pack(BigInteger[] values, int slotBytes) {
+
+        // big-endian, so the value of index zero ends up in the last slot
+        byte[] packed = new byte[Math.multiplyExact(values.length, slotBytes)];
+        for (int i = 0; i < values.length; i++) {
+            byte[] bytes = values[i].toByteArray();
+            int significant = Math.min(bytes.length, slotBytes);
+            System.arraycopy(bytes, bytes.length - significant, packed, packed.length - i * slotBytes - significant, significant);
+        }
+        return new BigInteger(1, packed);
+    }
+
+    private static BigInteger[] unpack(BigInteger packed, int slotBytes, int length) {
+
+        byte[] bytes = packed.toByteArray();
+        BigInteger[] values = new BigInteger[length];
+        for (int i = 0; i < length; i++) {
+            int end = bytes.length - i * slotBytes;
+            int start = Math.max(0, end - slotBytes);
+            values[i] = end <= 0 ? BigInteger.ZERO : new BigInteger(1, bytes, start, end - start);
+        }
+        return values;
+    }
+
+    private static long[] convolveByTransform(long[] a, long[] b, int length) {
+
+        int size = transformSize(length);
+        long[][] residues = new long[NTT_PRIMES.length][];
+        for (int k = 0; k < NTT_PRIMES.length; k++) {
+            long prime = NTT_PRIMES[k];
+            long[] fa = residues(a, size, prime);
+            long[] fb = residues(b, size, prime);
+            transform(fa, false, prime);
+            transform(fb, false, prime);
+            for (int i = 0; i < size; i++) {
+                fa[i] = fa[i] * fb[i] % prime;
+            }
+            transform(fa, true, prime);
+            residues[k] = fa;
+        }
+
+        long p0 = NTT_PRIMES[0];
+        long p1 = NTT_PRIMES[1];
+        long p2 = NTT_PRIMES[2];
+        long p0InverseModP1 = modPow(p0 % p1, p1 - 2, p1);
+        long p0p1InverseModP2 = modPow(p0 % p2 * (p1 % p2) % p2, p2 - 2, p2);
+        long p0p1 = p0 * p1;
+
+        // Garner's algorithm, the exact value is known to be below 2^63 so wrapping arithmetic is sufficient
+        long[] result = new long[length];
+        for (int i = 0; i < length; i++) {
+            long r0 = residues[0][i];
+            long r1 = residues[1][i];
+            long r2 = residues[2][i];
+            long t1 = Math.floorMod(r1 - r0, p1) * p0InverseModP1 % p1;
+            long partial = (r0 + p0 % p2 * t1) % p2;
+            long t2 = Math.floorMod(r2 - partial, p2) * p0p1InverseModP2 % p2;
+            result[i] = r0 + p0 * t1 + p0p1 * t2;
+        }
+        return result;
+    }
+
+    private static long[] residues(long[] values, int size, long prime) {
+
+        long[] residues = new long[size];
+        for (int i = 0; i < values.length; i++) {
+            residues[i] = values[i] % prime;
+        }
+        return residues;
+    }
+
+    private static void transform(long[] values, boolean inverse, long prime) {
+
+        int n = values.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                long swap = values[i];
+                values[i] = values[j];
+                values[j] = swap;
+            }
+        }
+
+        for (int length = 2; length <= n; length <<= 1) {
+            long root = modPow(NTT_ROOT, (prime - 1) / length, prime);
+            if (inverse) {
+                root = modPow(root, prime - 2, prime);
+            }
+            int half = length >> 1;
+            for (int start = 0; start < n; start += length) {
+                long w = 1;
+                for (int j = 0; j < half; j++) {
+                    long u = values[start + j];
+                    long v = values[start + j + half] * w % prime;
+                    long sum = u + v;
+                    long difference = u - v;
+                    values[start + j] = sum < prime ? sum : sum - prime;
+                    values[start + j + half] = difference >= 0 ? difference : difference + prime;
+                    w = w * root % prime;
+                }
+            }
+        }
+
+        if (inverse) {
+            long sizeInverse = modPow(n, prime - 2, prime);
+            for (int i = 0; i < n; i++) {
+                values[i] = values[i] * sizeInverse % prime;
+            }
+        }
+    }
+
+    private static long modPow(long base, long exponent, long modulus) {
+
+        long result = 1;
+        long b = base % modulus;
+        for (long e = exponent; e > 0; e >>= 1) {
+            if ((e & 1) == 1) {
+                result = result * b % modulus;
+            }
+            b = b * b % modulus;
+        }
+        return result;
+    }
+
+    private static double[] convolveByTransform(double[] a, double[] b, int length) {
+
+        int size = transformSize(length);
+        double[] aReal = Arrays.copyOf(a, size);
+        double[] aImaginary = new double[size];
+        double[] bReal = Arrays.copyOf(b, size);
+        double[] bImaginary = new double[size];
+        transform(aReal, aImaginary, false);
+        transform(bReal, bImaginary, false);
+        for (int i = 0; i < size; i++) {
+            double real = aReal[i] * bReal[i] - aImaginary[i] * bImaginary[i];
+            aImaginary[i] = aReal[i] * bImaginary[i] + aImaginary[i] * bReal[i];
+            aReal[i] = real;
+        }
+        transform(aReal, aImaginary, true);
+
+        double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            // rounding errors may produce tiny negative values for impossible results
+            result[i] = Math.max(0.0, aReal[i]);
+        }
+        return result;
+    }
+
+    private static void transform(double[] real, double[] imaginary, boolean inverse) {
+
+        int n = real.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double swap = real[i];
+                real[i] = real[j];
+                real[j] = swap;
+                swap = imaginary[i];
+                imaginary[i] = imaginary[j];
+                imaginary[j] = swap;
+            }
+        }
+
+        for (int length = 2; length <= n; length <<= 1) {
+            double angle = 2 * Math.PI / length * (inverse ? -1 : 1);
+            int half = length >> 1;
+            for (int j = 0; j < half; j++) {
+                double wReal = Math.cos(angle * j);
+                double wImaginary = Math.sin(angle * j);
+                for (int start = 0; start < n; start += length) {
+                    int upper = start + j;
+                    int lower = upper + half;
+                    double vReal = real[lower] * wReal - imaginary[lower] * wImaginary;
+                    double vImaginary = real[lower] * wImaginary + imaginary[lower] * wReal;
+                    real[lower] = real[upper] - vReal;
+                    imaginary[lower] = imaginary[upper] - vImaginary;
+                    real[upper] += vReal;
+                    imaginary[upper] += vImaginary;
+                }
+            }
+        }
+
+        if (inverse) {
+            for (int i = 0; i < n; i++) {
+                real[i] /= n;
+                imaginary[i] /= n;
+            }
+        }
+    }
+}
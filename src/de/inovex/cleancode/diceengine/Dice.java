@@ -1,21 +1,34 @@
 package de.inovex.cleancode.diceengine;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
-import java.util.stream.StreamSupport;
 
 import org.assertj.core.util.VisibleForTesting;
 
 public class Dice {
 
-    private final static Random RANDOM = new Random();
+    private final static Map<String, RandomInt> RANDOM_BY_ALGORITHM = new ConcurrentHashMap<>();
+
+    private final static RandomInt RANDOM = threadLocalRandom(RandomInt.DEFAULT_ALGORITHM);
 
     private final static int MIN = 1;
 
+    private final static int BULK_BUFFER_SIZE = 4096;
+
+    // part of the reproducible results of seeded rolls, which change with this size
+    private final static int SEEDED_CHUNK_SIZE = 1 << 16;
+
+    private final static ThreadLocal<int[]> SELECTION = ThreadLocal.withInitial(() -> new int[16]);
+
+    private final static LruCache<Key, Distribution> DISTRIBUTIONS =
+        new LruCache<>(Integer.getInteger("diceengine.cache.capacity", 1024));
+
 
     final int sides;
 
@@ -23,110 +36,468 @@ public class Dice {
 
     final int mod;
 
+    private final int keep;
+
+    private final boolean keepLowest;
+
+    private final int rerollAtMost;
+
+    private final int explosions;
+
     private final RandomInt rnd;
 
+    private final boolean aliasSampling;
+
+    private volatile Distribution distribution;
+
+    private volatile List<Result> results;
+
+    private volatile AliasTable aliasTable;
+
     public Dice(int sides, int dice, int mod, RandomInt rnd) {
 
-        this.sides = sides;
-        this.dice = dice;
-        this.mod = mod;
+        this(new Key(sides, dice, mod), rnd, false);
+    }
+
+    private Dice(Key key, RandomInt rnd, boolean aliasSampling) {
+
+        this.sides = key.sides();
+        this.dice = key.dice();
+        this.mod = key.mod();
+        this.keep = key.keep();
+        this.keepLowest = key.keepLowest();
+        this.rerollAtMost = key.rerollAtMost();
+        this.explosions = key.explosions();
         this.rnd = rnd;
+        this.aliasSampling = aliasSampling;
+    }
+
+    public int sides() {
+
+        return sides;
+    }
+
+    public int dice() {
+
+        return dice;
+    }
+
+    public int mod() {
+
+        return mod;
+    }
+
+    /**
+     * @return the number of dice summed up, which is less than {@link #dice()} if some dice are dropped.
+     */
+    public int keep() {
+
+        return keep;
+    }
+
+    /**
+     * @return whether the lowest dice are kept instead of the highest ones.
+     */
+    public boolean keepsLowest() {
+
+        return keepLowest;
+    }
+
+    /**
+     * @return the highest result which is rerolled once, zero if no result is rerolled.
+     */
+    public int rerollAtMost() {
+
+        return rerollAtMost;
+    }
+
+    /**
+     * @return the maximal number of additional rolls of a dice showing its highest face.
+     */
+    public int explosions() {
+
+        return explosions;
+    }
+
+    /**
+     * @return the probability of a dice exploding more often than {@link #explosions()}, which is missed by the
+     * distribution of these dice compared to unlimited explosions.
+     */
+    public double tailMass() {
+
+        return explosions == 0 ? 0.0 : FaceCounts.tailMass(sides, rerollAtMost, explosions, dice);
     }
 
     public int minimum() {
 
-        return dice * MIN + mod;
+        return keep * MIN + mod;
     }
 
     public int maximum() {
 
-        return dice * sides + mod;
+        return keep * sides * (explosions + 1) + mod;
+    }
+
+    /**
+     * @return the expected result, in closed form for plain dice. Rerolled or exploding dice take it from the
+     * distribution of a single dice, kept dice from their whole distribution.
+     */
+    public double mean() {
+
+        if (keep < dice) {
+            return distribution().mean();
+        }
+        if (rerollAtMost > 0 || explosions > 0) {
+            return dice * singleDistribution().mean() + mod;
+        }
+        return dice * (sides + 1) / 2.0 + mod;
+    }
+
+    /**
+     * @return the variance of results, computed like {@link #mean()}.
+     */
+    public double variance() {
+
+        if (keep < dice) {
+            return distribution().variance();
+        }
+        if (rerollAtMost > 0 || explosions > 0) {
+            return dice * singleDistribution().variance();
+        }
+        return dice * ((double) sides * sides - 1) / 12.0;
+    }
+
+    /**
+     * @return the smallest result whose probability of a result at most this one reaches the given probability, e.g.
+     * 0.95 for the 95th percentile, found by a binary search over the cumulative distribution.
+     */
+    public int quantile(double probability) {
+
+        return distribution().quantile(probability);
+    }
+
+    public Summary summary() {
+
+        return new Summary(mean(), variance(), minimum(), quantile(0.5), maximum());
     }
 
+    /**
+     * @return equal dice rolling with the given random source, e.g. to roll concurrently with independent sources.
+     */
+    public Dice withRandom(RandomInt rnd) {
+
+        Dice copy = new Dice(key(), rnd, aliasSampling);
+        copy.distribution = distribution;
+        copy.results = results;
+        copy.aliasTable = aliasTable;
+        return copy;
+    }
+
+    public Key key() {
+
+        return new Key(sides, dice, mod, keep, keepLowest, rerollAtMost, explosions);
+    }
+
+    /**
+     * @return the distribution of these dice, which is looked up in the shared cache only on the first call and kept by
+     * these dice afterwards.
+     */
+    public Distribution distribution() {
+
+        Distribution d = distribution;
+        if (d == null) {
+            // concurrent first calls may look up the distribution more than once, but always get an equal one
+            d = distribution(key());
+            distribution = d;
+        }
+        return d;
+    }
+
+    /**
+     * @return the unmodifiable results of {@link #distribution()}, which are read from the installed
+     * {@link DistributionTable} if it contains these dice and are computed on the first call only otherwise.
+     * @throws ArithmeticException if the counts exceed the {@code long} range of {@link Result}, e.g. of 30d6, whose
+     * exact counts are only available via {@link #distribution()}
+     */
     public List<Result> resultDistribution() {
 
-        if (dice == 0) {
-            return List.of(new Result(0, 1, 1));
+        List<Result> r = results;
+        if (r == null) {
+            r = DistributionTable.lookup(key());
+            if (r == null) {
+                Distribution d = distribution();
+                if (d.isLarge()) {
+                    throw new ArithmeticException(
+                        "Counts exceed the long range of results, use distribution() instead. Invalid dice: "
+                            + dice + "d" + sides);
+                }
+                r = List.copyOf(d.toResults());
+            }
+            results = r;
+        }
+        return r;
+    }
+
+    public int throwDice() {
+
+        EngineMetrics.recordRolls(1);
+        return roll();
+    }
+
+    private int roll() {
+
+        if (aliasSampling) {
+            return aliasTable().sample(rnd);
+        }
+        if (keep < dice) {
+            return throwKeptDice();
+        }
+        if (rerollAtMost > 0 || explosions > 0) {
+            return throwModifiedDice();
+        }
+        int sum = mod;
+        for (int d = 0; d < dice; d++) {
+            sum += rnd.next(sides) + MIN; // random returns zero inclusive, we need a minimum of one
+        }
+        return sum;
+    }
+
+    /**
+     * Fills the whole target with independent results.
+     */
+    public void throwDice(int[] target) {
+
+        throwDice(target, 0, target.length);
+    }
+
+    /**
+     * Fills the whole target in parallel, reproducibly for equal seeds. The target is split into consecutive chunks of
+     * 65536 results, which are rolled by generators split in chunk order from a
+     * {@link SplittableRandom} of the given seed. So results are equal bit for bit no matter how many threads roll
+     * them, as long as the chunk size and the algorithm of {@link SplittableRandom} stay unchanged.
+     */
+    public void throwDice(int[] target, long seed) {
+
+        SplittableRandom master = new SplittableRandom(seed);
+        int chunks = (target.length + SEEDED_CHUNK_SIZE - 1) / SEEDED_CHUNK_SIZE;
+        SplittableRandom[] generators = new SplittableRandom[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            generators[chunk] = master.split();
+        }
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * SEEDED_CHUNK_SIZE;
+            withRandom(RandomInt.of(generators[chunk]))
+                .throwDice(target, from, Math.min(from + SEEDED_CHUNK_SIZE, target.length));
+        });
+    }
+
+    /**
+     * Fills the target between both indices with independent results, the rest of the target stays untouched.
+     *
+     * @param from first index to fill (incl)
+     * @param to last index to fill (excl)
+     * @throws IndexOutOfBoundsException if the indices are out of the bounds of the target
+     */
+    public void throwDice(int[] target, int from, int to) {
+
+        Objects.checkFromToIndex(from, to, target.length);
+        EngineMetrics.recordRolls(to - from);
+        if (aliasSampling) {
+            AliasTable table = aliasTable();
+            for (int i = from; i < to; i++) {
+                target[i] = table.sample(rnd);
+            }
+
+        } else if (dice == 0) {
+            Arrays.fill(target, from, to, mod);
+
+        } else if (keep < dice || rerollAtMost > 0 || explosions > 0 || dice > BULK_BUFFER_SIZE) {
+            for (int i = from; i < to; i++) {
+                target[i] = roll();
+            }
+
+        } else if (dice == 1) {
+            rnd.nextInts(sides, target, from, to);
+            for (int i = from; i < to; i++) {
+                target[i] += MIN + mod;
+            }
 
         } else {
-            List<Result> list = new ArrayList<>();
-            Iterable<Integer> iterable = DiceValues::new;
-            List<Integer> all = StreamSupport.stream(iterable.spliterator(), false).sorted().toList();
-            int prev = 0;
-            int c = 0;
-            for (int currentValue: all) {
-                if (currentValue == prev) {
-                    c++;
-                } else {
-                    if (c > 0) {
-                        list.add(new Result(prev + mod, c, all.size()));
+            // the values of consecutive rolls are requested in one call, in the same order as by single rolls
+            int rollsPerBuffer = Math.min(BULK_BUFFER_SIZE / dice, to - from);
+            int[] values = new int[rollsPerBuffer * dice];
+            for (int first = from; first < to; first += rollsPerBuffer) {
+                int rolls = Math.min(rollsPerBuffer, to - first);
+                rnd.nextInts(sides, values, 0, rolls * dice);
+                for (int r = 0, v = 0; r < rolls; r++) {
+                    int sum = mod;
+                    for (int d = 0; d < dice; d++) {
+                        sum += values[v++] + MIN;
                     }
-                    prev = currentValue;
-                    c = 1;
+                    target[first + r] = sum;
                 }
             }
-            list.add(new Result(prev + mod, c, all.size()));
+        }
+    }
 
-            return list;
+    public int[] throwDice(int count) {
+
+        if (count < 0) {
+            throw new IllegalArgumentException("Number of throws cannot be negative. Invalid count: " + count);
         }
+        int[] results = new int[count];
+        throwDice(results);
+        return results;
     }
 
-    public int throwDice() {
+    /**
+     * @return the given number of results, rolled in parallel and reproducibly for equal seeds as by
+     * {@link #throwDice(int[], long)}.
+     */
+    public int[] throwDice(int count, long seed) {
 
-        if (dice == 0) {
-            return mod;
+        if (count < 0) {
+            throw new IllegalArgumentException("Number of throws cannot be negative. Invalid count: " + count);
         }
-        return IntStream.range(0, dice)
-            .map(d -> rnd.next(sides) + MIN) // random returns zero inclusive, we need a minimum of one
-            .sum() + mod;
+        int[] results = new int[count];
+        throwDice(results, seed);
+        return results;
     }
 
+    /**
+     * @return an infinite stream of independent results.
+     */
+    public IntStream rolls() {
 
-    private class DiceValues implements Iterator<Integer> {
+        return IntStream.generate(this::throwDice);
+    }
 
-        private final int[] values = new int[dice];
 
-        private boolean hasNext = true;
+    /**
+     * Selects the kept dice by a bounded heap of the smaller group of kept or dropped dice, so a roll costs
+     * O(dice * log(min(keep, dropped))) without sorting and without allocations.
+     */
+    private int throwKeptDice() {
+
+        int dropped = dice - keep;
+        int selected = Math.min(keep, dropped);
+        // the heap holds the largest values, the smallest ones are selected by negating them
+        int sign = keepLowest == (keep > dropped) ? 1 : -1;
+        int[] heap = SELECTION.get();
+        if (heap.length < selected) {
+            heap = new int[Math.max(selected, 2 * heap.length)];
+            SELECTION.set(heap);
+        }
 
-        public DiceValues() {
+        int sum = 0;
+        int size = 0;
+        for (int d = 0; d < dice; d++) {
+            int value = rnd.next(sides) + MIN;
+            sum += value;
+            if (size < selected) {
+                siftUp(heap, size++, sign * value);
+            } else if (selected > 0 && sign * value > heap[0]) {
+                siftDown(heap, selected, sign * value);
+            }
+        }
 
-            Arrays.fill(values, 1);
+        int selectedSum = 0;
+        for (int i = 0; i < selected; i++) {
+            selectedSum += sign * heap[i];
         }
+        return (keep <= dropped ? selectedSum : sum - selectedSum) + mod;
+    }
 
-        @Override
-        public boolean hasNext() {
+    private int throwModifiedDice() {
 
-            return hasNext;
+        int sum = mod;
+        for (int d = 0; d < dice; d++) {
+            int value;
+            int explosion = 0;
+            do {
+                value = rnd.next(sides) + MIN;
+                if (value <= rerollAtMost) {
+                    value = rnd.next(sides) + MIN;
+                }
+                sum += value;
+            } while (value == sides && explosion++ < explosions);
         }
+        return sum;
+    }
 
-        @Override
-        public Integer next() {
+    private static void siftUp(int[] heap, int index, int value) {
 
-            int currentValue = Arrays.stream(values).sum();
-            hasNext = !increment(0);
-            return currentValue;
+        while (index > 0 && heap[(index - 1) / 2] > value) {
+            heap[index] = heap[(index - 1) / 2];
+            index = (index - 1) / 2;
         }
+        heap[index] = value;
+    }
 
-        private boolean increment(int index) {
+    /**
+     * Replaces the smallest value of the heap by the given larger one.
+     */
+    private static void siftDown(int[] heap, int size, int value) {
 
-            if ((index == dice - 1) || increment(index + 1)) {
-                int currentValue = values[index];
-                if (currentValue < sides) {
-                    values[index] = currentValue + 1;
-                } else {
-                    // overflow
-                    values[index] = 1;
-                    return true;
-                }
+        int index = 0;
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= value) {
+                break;
             }
-            return false;
+            heap[index] = heap[child];
+            index = child;
         }
+        heap[index] = value;
+    }
+
+    private AliasTable aliasTable() {
+
+        AliasTable table = aliasTable;
+        if (table == null) {
+            table = new AliasTable(distribution());
+            aliasTable = table;
+        }
+        return table;
+    }
+
+    private Distribution singleDistribution() {
+
+        return distribution(new Key(sides, 1, 0, 1, false, rerollAtMost, explosions));
+    }
+
+    /**
+     * @return the distribution of the given dice, which is looked up in the shared cache, read from the installed
+     * {@link DistributionTable} if it contains the dice, and built and measured by {@link EngineMetrics} otherwise.
+     */
+    public static Distribution distribution(Key key) {
+
+        return DISTRIBUTIONS.get(key, k -> {
+            Distribution tabled = DistributionTable.lookupDistribution(k);
+            return tabled != null ? tabled : EngineMetrics.buildDistribution(k);
+        });
     }
 
+    /**
+     * @return the cache shared by all dice, whose capacity can be adjusted or preset by the system property
+     * {@code diceengine.cache.capacity}.
+     */
+    public static LruCache<Key, Distribution> distributionCache() {
+
+        return DISTRIBUTIONS;
+    }
 
     public static DiceDefinition define() {
 
-        return new DiceDefinition(RANDOM::nextInt);
+        return new DiceDefinition(RANDOM);
+    }
+
+    private static RandomInt threadLocalRandom(String algorithm) {
+
+        return RANDOM_BY_ALGORITHM.computeIfAbsent(algorithm, RandomInt::threadLocal);
     }
 
     @VisibleForTesting
@@ -140,7 +511,14 @@ public class Dice {
         private Integer sides;
         private int dice = 1;
         private int mod = 0;
-        private final RandomInt rnd;
+        private Integer keep;
+        private int drop = 0;
+        private boolean keepLowest = false;
+        private int rerollAtMost = 0;
+        private int explosions = 0;
+        private Double explosionTolerance;
+        private boolean aliasSampling = false;
+        private RandomInt rnd;
 
         private DiceDefinition(RandomInt rnd) {
 
@@ -165,6 +543,107 @@ public class Dice {
             return this;
         }
 
+        /**
+         * Sums up only the given number of highest dice, e.g. 2d20 keeping the highest one.
+         */
+        public DiceDefinition withKeepHighest(int keep) {
+
+            return withKept(keep, 0, false);
+        }
+
+        /**
+         * Sums up only the given number of lowest dice, e.g. 2d20 keeping the lowest one.
+         */
+        public DiceDefinition withKeepLowest(int keep) {
+
+            return withKept(keep, 0, true);
+        }
+
+        /**
+         * Ignores the given number of lowest dice, e.g. 4d6 dropping the lowest one.
+         */
+        public DiceDefinition withDropLowest(int drop) {
+
+            return withKept(null, drop, false);
+        }
+
+        /**
+         * Ignores the given number of highest dice.
+         */
+        public DiceDefinition withDropHighest(int drop) {
+
+            return withKept(null, drop, true);
+        }
+
+        private DiceDefinition withKept(Integer keep, int drop, boolean keepLowest) {
+
+            this.keep = keep;
+            this.drop = drop;
+            this.keepLowest = keepLowest;
+            return this;
+        }
+
+        /**
+         * Rerolls each dice once if it shows the given result or less, e.g. one to reroll ones.
+         */
+        public DiceDefinition withRerollOnce(int rerollAtMost) {
+
+            this.rerollAtMost = rerollAtMost;
+            return this;
+        }
+
+        /**
+         * Rolls a dice showing its highest face again and adds the new result, up to the given number of times.
+         */
+        public DiceDefinition withExplosions(int explosions) {
+
+            this.explosions = explosions;
+            this.explosionTolerance = null;
+            return this;
+        }
+
+        /**
+         * Rolls a dice showing its highest face again and adds the new result, as often as needed so that the
+         * probability of exceeding the number of explosions does not exceed the given tolerance.
+         *
+         * @see Dice#tailMass()
+         */
+        public DiceDefinition withExplosionTolerance(double tolerance) {
+
+            this.explosionTolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Rolls with an independent generator of the given algorithm per thread.
+         *
+         * @param algorithm name of a {@link RandomGenerator} algorithm, e.g. {@value RandomInt#DEFAULT_ALGORITHM}
+         */
+        public DiceDefinition withAlgorithm(String algorithm) {
+
+            this.rnd = threadLocalRandom(algorithm);
+            return this;
+        }
+
+        /**
+         * Rolls with the given generator, which must be thread-safe if the dice are rolled concurrently.
+         */
+        public DiceDefinition withRandom(RandomGenerator generator) {
+
+            this.rnd = RandomInt.of(generator);
+            return this;
+        }
+
+        /**
+         * Rolls by sampling an alias table of the distribution, which is built on the first roll. Each roll then costs
+         * two random ints instead of one per dice, which pays off for large numbers of dice.
+         */
+        public DiceDefinition withAliasSampling() {
+
+            this.aliasSampling = true;
+            return this;
+        }
+
         public Dice create() {
 
             if (sides == null) {
@@ -177,11 +656,86 @@ public class Dice {
                 throw new IllegalArgumentException("Cardinality of dice cannot be negative. Invalid result: " + dice);
             }
 
-            long maxValue = ((long) dice) * ((long) sides) + ((long) mod);
+            int kept = keep != null ? keep : dice - drop;
+            if (kept < 0 || kept > dice) {
+                throw new IllegalArgumentException(
+                    "Kept dice must be between zero and the cardinality of dice. Invalid result: " + kept);
+            }
+
+            if (rerollAtMost < 0 || rerollAtMost >= sides) {
+                throw new IllegalArgumentException(
+                    "Rerolled results must be below the number of sides. Invalid result: " + rerollAtMost);
+            }
+            int explosionDepth = explosions;
+            if (explosionTolerance != null) {
+                if (!(explosionTolerance > 0.0 && explosionTolerance < 1.0)) {
+                    throw new IllegalArgumentException(
+                        "Explosion tolerance must be between zero and one. Invalid result: " + explosionTolerance);
+                }
+                // a single sided dice would explode forever
+                explosionDepth = sides == MIN
+                    ? 0
+                    : FaceCounts.explosions(sides, rerollAtMost, dice, explosionTolerance);
+            }
+            if (explosionDepth < 0) {
+                throw new IllegalArgumentException(
+                    "Number of explosions cannot be negative. Invalid result: " + explosionDepth);
+            }
+            if (kept < dice && (rerollAtMost > 0 || explosionDepth > 0)) {
+                throw new IllegalArgumentException("Kept dice cannot be rerolled or explode.");
+            }
+
+            long maxValue = ((long) kept) * ((long) sides) * (explosionDepth + 1L) + ((long) mod);
             if (maxValue > Integer.MAX_VALUE) {
                 throw new IllegalArgumentException("The maximal possible value overflows the valid range.");
             }
-            return new Dice(sides, dice, mod, rnd);
+            Key key = new Key(sides, dice, mod, kept, keepLowest && kept < dice, rerollAtMost, explosionDepth);
+            return new Dice(key, rnd, aliasSampling);
+        }
+    }
+
+    /**
+     * Identifies dice of equal results regardless of their random source.
+     */
+    public record Key(int sides, int dice, int mod, int keep, boolean keepLowest, int rerollAtMost, int explosions) {
+
+        /**
+         * Identifies dice summing up all dice.
+         */
+        public Key(int sides, int dice, int mod) {
+
+            this(sides, dice, mod, dice, false);
+        }
+
+        /**
+         * Identifies dice which are neither rerolled nor explode.
+         */
+        public Key(int sides, int dice, int mod, int keep, boolean keepLowest) {
+
+            this(sides, dice, mod, keep, keepLowest, 0, 0);
+        }
+
+        /**
+         * @return whether the results are plain sums of uniformly distributed dice.
+         */
+        public boolean isUniformSum() {
+
+            return keep == dice && rerollAtMost == 0 && explosions == 0;
+        }
+
+        public Distribution distribution() {
+
+            Distribution kept;
+            if (rerollAtMost > 0 || explosions > 0) {
+                kept = FaceCounts.of(sides, rerollAtMost, explosions).times(dice);
+            } else if (keep == dice) {
+                kept = Distribution.uniformSum(sides, dice);
+            } else if (keepLowest) {
+                kept = Distribution.keepLowest(sides, dice, keep);
+            } else {
+                kept = Distribution.keepHighest(sides, dice, keep);
+            }
+            return kept.shift(mod);
         }
     }
 }
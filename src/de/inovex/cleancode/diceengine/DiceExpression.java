@@ -0,0 +1,283 @@
+package de.inovex.cleancode.diceengine;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable evaluation plan of a dice expression like {@code 3d6+2d8-1}, which is a sum of dice terms
+ * {@code <dice>d<sides>} and constant modifiers. The count of dice can be omitted for a single dice, e.g. {@code d20}.
+ * <p>
+ * Compiling merges dice of equal sides and all modifiers, so {@code d6+4+2d6+1} is planned as {@code 3d6+5}. Compiled
+ * expressions are interned, so repeated expressions are parsed only once.
+ */
+public final class DiceExpression {
+
+    private static final LruCache<String, DiceExpression> COMPILED =
+        new LruCache<>(Integer.getInteger("diceengine.expression.cache.capacity", 1024));
+
+    private final String expression;
+
+    private final Dice[] dice;
+
+    private final int mod;
+
+    private volatile Distribution distribution;
+
+    private DiceExpression(String expression, Dice[] dice, int mod) {
+
+        this.expression = expression;
+        this.dice = dice;
+        this.mod = mod;
+    }
+
+    /**
+     * @return the plan of the given expression, which is parsed only if it is not interned yet.
+     * @throws IllegalArgumentException if the expression is invalid or its results exceed the {@code int} range
+     */
+    public static DiceExpression compile(String expression) {
+
+        return COMPILED.get(expression, DiceExpression::parse);
+    }
+
+    /**
+     * @return the cache of compiled expressions, whose capacity can be adjusted or preset by the system property
+     * {@code diceengine.expression.cache.capacity}.
+     */
+    public static LruCache<String, DiceExpression> compiledCache() {
+
+        return COMPILED;
+    }
+
+    /**
+     * @return the merged dice by ascending sides, the first of which carries the modifier of the whole expression.
+     */
+    public Dice[] dice() {
+
+        return dice.clone();
+    }
+
+    public int mod() {
+
+        return mod;
+    }
+
+    public int minimum() {
+
+        int minimum = 0;
+        for (Dice d : dice) {
+            minimum += d.minimum();
+        }
+        return minimum;
+    }
+
+    public int maximum() {
+
+        int maximum = 0;
+        for (Dice d : dice) {
+            maximum += d.maximum();
+        }
+        return maximum;
+    }
+
+    /**
+     * @return the distribution of the expression, which is computed on the first call only.
+     */
+    public Distribution distribution() {
+
+        Distribution sum = distribution;
+        if (sum == null) {
+            sum = dice[0].distribution();
+            for (int i = 1; i < dice.length; i++) {
+                sum = sum.add(dice[i].distribution());
+            }
+            distribution = sum;
+        }
+        return sum;
+    }
+
+    public int throwDice() {
+
+        int sum = 0;
+        for (Dice d : dice) {
+            sum += d.throwDice();
+        }
+        return sum;
+    }
+
+    /**
+     * @return the canonical form of the plan, e.g. {@code 3d6+2d8-1}.
+     */
+    @Override
+    public String toString() {
+
+        return expression;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        return other instanceof DiceExpression && expression.equals(((DiceExpression) other).expression);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return expression.hashCode();
+    }
+
+    private static DiceExpression parse(String expression) {
+
+        Map<Integer, Long> diceBySides = new TreeMap<>();
+        long mod = 0;
+        Parser parser = new Parser(expression);
+        boolean first = true;
+        while (parser.hasNext()) {
+            int sign = parser.sign(first);
+            long count = parser.number(1);
+            if (parser.dice()) {
+                if (sign < 0) {
+                    throw parser.invalid("Dice cannot be subtracted");
+                }
+                long sides = parser.number(0);
+                if (sides < 1) {
+                    throw parser.invalid("Number of sides must be positive");
+                }
+                if (diceBySides.merge((int) sides, count, Long::sum) > Integer.MAX_VALUE) {
+                    throw parser.invalid("Cardinality of dice exceeds the valid range");
+                }
+            } else if (parser.numberRead()) {
+                mod += sign * count;
+            } else {
+                throw parser.invalid("Expected a number or dice");
+            }
+            first = false;
+            if (Math.abs(mod) > Integer.MAX_VALUE) {
+                throw parser.invalid("The modifier overflows the valid range");
+            }
+        }
+        if (first) {
+            throw parser.invalid("Expected a number or dice");
+        }
+
+        StringBuilder canonical = new StringBuilder();
+        long minimum = mod;
+        long maximum = mod;
+        for (Map.Entry<Integer, Long> entry : diceBySides.entrySet()) {
+            canonical.append(canonical.length() == 0 ? "" : "+");
+            canonical.append(entry.getValue()).append('d').append(entry.getKey());
+            minimum += entry.getValue();
+            maximum += entry.getValue() * entry.getKey();
+        }
+        if (minimum < Integer.MIN_VALUE || maximum > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "The possible results overflow the valid range. Invalid dice expression: " + expression);
+        }
+        if (mod != 0 || canonical.length() == 0) {
+            canonical.append(mod < 0 || canonical.length() == 0 ? "" : "+").append(mod);
+        }
+
+        Dice[] dice = diceBySides.isEmpty()
+            ? new Dice[] {Dice.define().withSides(1).withDice(0).withMod((int) mod).create()}
+            : new Dice[diceBySides.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Long> entry : diceBySides.entrySet()) {
+            dice[i] = Dice.define()
+                .withSides(entry.getKey())
+                .withDice(entry.getValue().intValue())
+                .withMod(i == 0 ? (int) mod : 0)
+                .create();
+            i++;
+        }
+        return new DiceExpression(canonical.toString(), dice, (int) mod);
+    }
+
+    /**
+     * Reads the tokens of an expression, ignoring whitespace.
+     */
+    private static class Parser {
+
+        private final String expression;
+
+        private int position;
+
+        private boolean numberRead;
+
+        Parser(String expression) {
+
+            this.expression = expression;
+            skipWhitespace();
+        }
+
+        boolean hasNext() {
+
+            return position < expression.length();
+        }
+
+        /**
+         * @return the sign of the next term, which is optional for the first one.
+         */
+        int sign(boolean first) {
+
+            char c = hasNext() ? expression.charAt(position) : 0;
+            if (c == '+' || c == '-') {
+                position++;
+                skipWhitespace();
+                return c == '-' ? -1 : 1;
+            }
+            if (!first) {
+                throw invalid("Expected + or -");
+            }
+            return 1;
+        }
+
+        /**
+         * @return the next number, or the default value if there is none.
+         */
+        long number(long defaultValue) {
+
+            int start = position;
+            long number = 0;
+            while (hasNext() && expression.charAt(position) >= '0' && expression.charAt(position) <= '9') {
+                number = number * 10 + expression.charAt(position) - '0';
+                if (number > Integer.MAX_VALUE) {
+                    throw invalid("Number exceeds the valid range");
+                }
+                position++;
+            }
+            numberRead = position > start;
+            skipWhitespace();
+            return numberRead ? number : defaultValue;
+        }
+
+        boolean numberRead() {
+
+            return numberRead;
+        }
+
+        /**
+         * @return whether the next token is the dice separator, which is consumed then.
+         */
+        boolean dice() {
+
+            if (hasNext() && Character.toLowerCase(expression.charAt(position)) == 'd') {
+                position++;
+                skipWhitespace();
+                return true;
+            }
+            return false;
+        }
+
+        IllegalArgumentException invalid(String reason) {
+
+            return new IllegalArgumentException(
+                reason + " at position " + position + ". Invalid dice expression: " + expression);
+        }
+
+        private void skipWhitespace() {
+
+            while (hasNext() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package de.inovex.cleancode.diceengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Mutable pool of dice whose distribution is kept up to date on every change. Adding a dice convolves the current
+ * distribution with the dice's one, removing a dice divides it out again, so every change costs O(results * sides)
+ * instead of recomputing the whole pool.
+ * <p>
+ * A pool is not thread-safe.
+ */
+public class DicePool {
+
+    private final List<Dice> dice = new ArrayList<>();
+
+    private Distribution distribution = Distribution.constant(0);
+
+    public DicePool(Dice... dice) {
+
+        for (Dice d : dice) {
+            add(d);
+        }
+    }
+
+    public DicePool add(Dice d) {
+
+        distribution = distribution.add(d.distribution());
+        dice.add(d);
+        return this;
+    }
+
+    /**
+     * Removes one dice of equal {@link Dice#key()}.
+     *
+     * @throws IllegalArgumentException if the pool contains no such dice
+     */
+    public DicePool remove(Dice d) {
+
+        for (int i = dice.size() - 1; i >= 0; i--) {
+            if (dice.get(i).key().equals(d.key())) {
+                distribution = distribution.remove(dice.get(i).distribution());
+                dice.remove(i);
+                return this;
+            }
+        }
+        throw new IllegalArgumentException("The pool contains no dice of " + d.key());
+    }
+
+    public boolean isEmpty() {
+
+        return dice.isEmpty();
+    }
+
+    public List<Dice> dice() {
+
+        return Collections.unmodifiableList(dice);
+    }
+
+    /**
+     * @return the distribution of the sum of all dice, which is the constant zero for an empty pool.
+     */
+    public Distribution distribution() {
+
+        return distribution;
+    }
+
+    /**
+     * @return the expected sum, added up from the closed forms of all dice.
+     */
+    public double mean() {
+
+        double mean = 0.0;
+        for (Dice d : dice) {
+            mean += d.mean();
+        }
+        return mean;
+    }
+
+    /**
+     * @return the variance of the sum, which is the sum of the variances of the independent dice.
+     */
+    public double variance() {
+
+        double variance = 0.0;
+        for (Dice d : dice) {
+            variance += d.variance();
+        }
+        return variance;
+    }
+
+    /**
+     * @return the smallest sum whose probability of a sum at most this one reaches the given probability, found by a
+     * binary search over the current distribution.
+     */
+    public int quantile(double probability) {
+
+        return distribution.quantile(probability);
+    }
+
+    public Summary summary() {
+
+        return new Summary(mean(), variance(), distribution.minimum(), quantile(0.5), distribution.maximum());
+    }
+
+    public int throwDice() {
+
+        int sum = 0;
+        for (Dice d : dice) {
+            sum += d.throwDice();
+        }
+        return sum;
+    }
+}
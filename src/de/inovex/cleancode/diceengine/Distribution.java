@@ -0,0 +1,553 @@
+package de.inovex.cleancode.diceengine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable distribution of integer results. The combination counts of all results between {@link #minimum()} and
+ * {@link #maximum()} are kept in a single primitive array sharing one overall count.
+ * <p>
+ * As long as the overall count fits into a {@code long}, all arithmetic runs on primitive arrays. Once an operation
+ * would overflow, the result is transparently promoted to {@link BigInteger} counts, so results stay exact.
+ * <p>
+ * Cumulative counts are computed on the first range query and answer all further range queries with two array reads.
+ */
+public final class Distribution {
+
+    private final int minimum;
+
+    private final long[] counts;
+
+    private final long overall;
+
+    private final BigInteger[] largeCounts;
+
+    private final BigInteger largeOverall;
+
+    private volatile long[] cumulativeCounts;
+
+    private volatile BigInteger[] largeCumulativeCounts;
+
+    private Distribution(int minimum, long[] counts, long overall) {
+
+        this.minimum = minimum;
+        this.counts = counts;
+        this.overall = overall;
+        this.largeCounts = null;
+        this.largeOverall = null;
+    }
+
+    private Distribution(int minimum, BigInteger[] largeCounts, BigInteger largeOverall) {
+
+        this.minimum = minimum;
+        this.counts = null;
+        this.overall = 0;
+        this.largeCounts = largeCounts;
+        this.largeOverall = largeOverall;
+    }
+
+    /**
+     * @param minimum the result counted at index zero
+     * @param counts combination counts of consecutive results, which are copied without leading and trailing zeros
+     */
+    public static Distribution of(int minimum, long[] counts) {
+
+        if (counts.length == 0) {
+            throw new IllegalArgumentException("A distribution requires at least one result.");
+        }
+        Math.addExact(minimum, counts.length - 1);
+        long overall = 0;
+        for (long count : counts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Counts cannot be negative. Invalid count: " + count);
+            }
+            overall = Math.addExact(overall, count);
+        }
+        if (overall == 0) {
+            throw new IllegalArgumentException("A distribution requires at least one possible result.");
+        }
+
+        int first = 0;
+        while (counts[first] == 0) {
+            first++;
+        }
+        int last = counts.length - 1;
+        while (counts[last] == 0) {
+            last--;
+        }
+        return new Distribution(minimum + first, Arrays.copyOfRange(counts, first, last + 1), overall);
+    }
+
+    /**
+     * @param minimum the result counted at index zero
+     * @param counts combination counts of consecutive results, which are kept as {@code long} if possible
+     */
+    public static Distribution of(int minimum, BigInteger[] counts) {
+
+        if (counts.length == 0) {
+            throw new IllegalArgumentException("A distribution requires at least one result.");
+        }
+        Math.addExact(minimum, counts.length - 1);
+        BigInteger overall = BigInteger.ZERO;
+        for (BigInteger count : counts) {
+            if (count.signum() < 0) {
+                throw new IllegalArgumentException("Counts cannot be negative. Invalid count: " + count);
+            }
+            overall = overall.add(count);
+        }
+        if (overall.signum() == 0) {
+            throw new IllegalArgumentException("A distribution requires at least one possible result.");
+        }
+
+        int first = 0;
+        while (counts[first].signum() == 0) {
+            first++;
+        }
+        int last = counts.length - 1;
+        while (counts[last].signum() == 0) {
+            last--;
+        }
+        BigInteger[] trimmed = Arrays.copyOfRange(counts, first, last + 1);
+        return overall.bitLength() < Long.SIZE
+            ? new Distribution(minimum + first, Convolution.inLongRange(trimmed), overall.longValueExact())
+            : new Distribution(minimum + first, trimmed, overall);
+    }
+
+    public static Distribution constant(int value) {
+
+        return new Distribution(value, new long[] {1}, 1);
+    }
+
+    /**
+     * @return the distribution of the sums of {@code dice} dice with the given number of sides.
+     */
+    public static Distribution uniformSum(int sides, int dice) {
+
+        try {
+            long[] counts = Convolution.uniformSum(sides, dice);
+            return new Distribution(dice, counts, sum(counts));
+
+        } catch (ArithmeticException e) {
+            BigInteger[] counts = Convolution.uniformSumExactly(sides, dice);
+            return new Distribution(dice, counts, BigInteger.valueOf(sides).pow(dice));
+        }
+    }
+
+    /**
+     * @return the distribution of the sums of the {@code keep} highest of {@code dice} dice with the given number of
+     * sides, e.g. of 4d6 dropping the lowest dice.
+     */
+    public static Distribution keepHighest(int sides, int dice, int keep) {
+
+        if (sides < 1 || keep < 0 || keep > dice) {
+            throw new IllegalArgumentException(
+                "Invalid dice for keeping the highest ones. Invalid dice: %dd%d keep %d".formatted(dice, sides, keep));
+        }
+        try {
+            long[] counts = OrderStatistics.keepHighest(sides, dice, keep);
+            return new Distribution(keep, counts, sum(counts));
+
+        } catch (ArithmeticException e) {
+            BigInteger[] counts = OrderStatistics.keepHighestExactly(sides, dice, keep);
+            return new Distribution(keep, counts, BigInteger.valueOf(sides).pow(dice));
+        }
+    }
+
+    /**
+     * @return the distribution of the sums of the {@code keep} lowest of {@code dice} dice with the given number of
+     * sides, which mirrors the one of the highest dice.
+     */
+    public static Distribution keepLowest(int sides, int dice, int keep) {
+
+        Distribution highest = keepHighest(sides, dice, keep);
+        return highest.counts != null
+            ? new Distribution(highest.minimum, reverse(highest.counts), highest.overall)
+            : new Distribution(highest.minimum, reverse(highest.largeCounts), highest.largeOverall);
+    }
+
+    public int minimum() {
+
+        return minimum;
+    }
+
+    public int maximum() {
+
+        return minimum + size() - 1;
+    }
+
+    /**
+     * @return whether the counts exceed the {@code long} range and are only available via {@link #exactCount(int)}.
+     */
+    public boolean isLarge() {
+
+        return counts == null;
+    }
+
+    /**
+     * @throws ArithmeticException if the overall count exceeds the {@code long} range
+     */
+    public long overall() {
+
+        return counts != null ? overall : largeOverall.longValueExact();
+    }
+
+    public BigInteger exactOverall() {
+
+        return counts != null ? BigInteger.valueOf(overall) : largeOverall;
+    }
+
+    /**
+     * @throws ArithmeticException if the count exceeds the {@code long} range
+     */
+    public long count(int result) {
+
+        int index = index(result);
+        if (index < 0) {
+            return 0;
+        }
+        return counts != null ? counts[index] : largeCounts[index].longValueExact();
+    }
+
+    public BigInteger exactCount(int result) {
+
+        int index = index(result);
+        if (index < 0) {
+            return BigInteger.ZERO;
+        }
+        return counts != null ? BigInteger.valueOf(counts[index]) : largeCounts[index];
+    }
+
+    public double probability(int result) {
+
+        int index = index(result);
+        if (index < 0) {
+            return 0.0;
+        }
+        return counts != null ? counts[index] / (double) overall : ratio(largeCounts[index], largeOverall);
+    }
+
+    /**
+     * @return the probabilities of all results between {@link #minimum()} and {@link #maximum()}.
+     */
+    public double[] probabilities() {
+
+        double[] probabilities = new double[size()];
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = counts != null ? counts[i] / (double) overall : ratio(largeCounts[i], largeOverall);
+        }
+        return probabilities;
+    }
+
+    /**
+     * @return the probability of a result less than or equal to the given one.
+     */
+    public double probabilityAtMost(int result) {
+
+        return probabilityBetween(Integer.MIN_VALUE, result);
+    }
+
+    /**
+     * @return the probability of a result between both given results, including both.
+     */
+    public double probabilityBetween(int from, int to) {
+
+        long first = Math.max((long) from - minimum, 0);
+        long last = Math.min((long) to - minimum, size() - 1);
+        if (first > last) {
+            return 0.0;
+        }
+
+        if (counts != null) {
+            long[] cumulative = cumulativeCounts();
+            long matching = cumulative[(int) last] - (first == 0 ? 0 : cumulative[(int) first - 1]);
+            return matching / (double) overall;
+        }
+        BigInteger[] cumulative = largeCumulativeCounts();
+        BigInteger matching = first == 0
+            ? cumulative[(int) last]
+            : cumulative[(int) last].subtract(cumulative[(int) first - 1]);
+        return ratio(matching, largeOverall);
+    }
+
+    /**
+     * @param probability probability between zero and one, e.g. 0.5 for the median
+     * @return the smallest result whose probability of a result at most this one reaches the given probability, found
+     * by a binary search over the cumulative counts.
+     */
+    public int quantile(double probability) {
+
+        if (!(probability >= 0.0 && probability <= 1.0)) {
+            throw new IllegalArgumentException(
+                "Probability must be between zero and one. Invalid probability: " + probability);
+        }
+        // the cumulative counts are compared exactly to the probability of the overall count
+        BigDecimal threshold = new BigDecimal(probability).multiply(new BigDecimal(exactOverall()));
+        long[] cumulative = counts != null ? cumulativeCounts() : null;
+        BigInteger[] largeCumulative = counts != null ? null : largeCumulativeCounts();
+        int low = 0;
+        int high = size() - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            BigDecimal count = cumulative != null
+                ? BigDecimal.valueOf(cumulative[middle])
+                : new BigDecimal(largeCumulative[middle]);
+            if (count.compareTo(threshold) >= 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return minimum + low;
+    }
+
+    /**
+     * @return the mean of all results, weighted by their probabilities.
+     */
+    public double mean() {
+
+        double[] probabilities = probabilities();
+        double mean = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            mean += probabilities[i] * i;
+        }
+        return minimum + mean;
+    }
+
+    public double variance() {
+
+        double[] probabilities = probabilities();
+        double mean = mean() - minimum;
+        double variance = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            variance += probabilities[i] * (i - mean) * (i - mean);
+        }
+        return variance;
+    }
+
+    /**
+     * @return the distribution of the sum of a result of this and a result of the other distribution.
+     * @throws ArithmeticException if a result exceeds the {@code int} range
+     */
+    public Distribution add(Distribution other) {
+
+        int sumMinimum = Math.addExact(minimum, other.minimum);
+        Math.addExact(sumMinimum, size() + other.size() - 2);
+        if (counts != null && other.counts != null) {
+            try {
+                long[] sum = Convolution.convolve(counts, other.counts);
+                return new Distribution(sumMinimum, sum, overall * other.overall);
+
+            } catch (ArithmeticException e) {
+                // continue with exact large counts
+            }
+        }
+        BigInteger[] sum = Convolution.convolve(largeCounts(), other.largeCounts());
+        return new Distribution(sumMinimum, sum, exactOverall().multiply(other.exactOverall()));
+    }
+
+    /**
+     * @return the distribution of the sum of {@code times} independent results, computed by repeated squaring.
+     * @throws ArithmeticException if a result exceeds the {@code int} range
+     */
+    public Distribution times(int times) {
+
+        if (times < 0) {
+            throw new IllegalArgumentException("Number of results cannot be negative. Invalid number: " + times);
+        }
+        int sumMinimum = Math.multiplyExact(minimum, times);
+        Math.addExact(sumMinimum, Math.multiplyExact(size() - 1, times));
+        if (counts != null) {
+            try {
+                long[] sum = Convolution.power(counts, times);
+                return new Distribution(sumMinimum, sum, sum(sum));
+
+            } catch (ArithmeticException e) {
+                // continue with exact large counts
+            }
+        }
+        return new Distribution(sumMinimum, Convolution.power(largeCounts(), times), exactOverall().pow(times));
+    }
+
+    /**
+     * Reverts {@link #add(Distribution)} by polynomial division, which costs O(size of this * size of the part).
+     *
+     * @return the distribution which results in this one when adding the given part.
+     * @throws IllegalArgumentException if this distribution is no sum of the given part and another distribution
+     */
+    public Distribution remove(Distribution part) {
+
+        int quotientSize = size() - part.size() + 1;
+        if (quotientSize < 1) {
+            throw new IllegalArgumentException("The part has more results than this distribution.");
+        }
+        int quotientMinimum = Math.subtractExact(minimum, part.minimum);
+        try {
+            if (counts != null && part.counts != null) {
+                return new Distribution(quotientMinimum, divide(counts, part.counts, quotientSize), overall / part.overall);
+            }
+            BigInteger[] quotient = divide(largeCounts(), part.largeCounts(), quotientSize);
+            BigInteger quotientOverall = exactOverall().divide(part.exactOverall());
+            return quotientOverall.bitLength() < Long.SIZE
+                ? new Distribution(quotientMinimum, Convolution.inLongRange(quotient), quotientOverall.longValueExact())
+                : new Distribution(quotientMinimum, quotient, quotientOverall);
+
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("The distribution is no sum of the given part.", e);
+        }
+    }
+
+    /**
+     * @return this distribution with every result moved by the given offset.
+     */
+    public Distribution shift(int offset) {
+
+        int shiftedMinimum = Math.addExact(minimum, offset);
+        Math.addExact(shiftedMinimum, size() - 1);
+        Distribution shifted = counts != null
+            ? new Distribution(shiftedMinimum, counts, overall)
+            : new Distribution(shiftedMinimum, largeCounts, largeOverall);
+        shifted.cumulativeCounts = cumulativeCounts;
+        shifted.largeCumulativeCounts = largeCumulativeCounts;
+        return shifted;
+    }
+
+    /**
+     * @return all possible results in ascending order, as used by {@link Dice#resultDistribution()}.
+     * @throws ArithmeticException if a count exceeds the {@code long} range of {@link Result}
+     */
+    public List<Result> toResults() {
+
+        long overallResults = overall();
+        List<Result> results = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            long count = counts != null ? counts[i] : largeCounts[i].longValueExact();
+            if (count > 0) {
+                results.add(new Result(minimum + i, count, overallResults));
+            }
+        }
+        return results;
+    }
+
+    private static long[] divide(long[] dividend, long[] divisor, int quotientSize) {
+
+        long[] quotient = new long[quotientSize];
+        for (int i = 0; i < dividend.length; i++) {
+            long remainder = dividend[i];
+            for (int j = Math.max(1, i - quotientSize + 1); j < Math.min(divisor.length, i + 1); j++) {
+                remainder = Math.subtractExact(remainder, Math.multiplyExact(divisor[j], quotient[i - j]));
+            }
+            if (i < quotientSize) {
+                if (remainder < 0 || remainder % divisor[0] != 0) {
+                    throw new ArithmeticException("Remainder of division: " + remainder);
+                }
+                quotient[i] = remainder / divisor[0];
+            } else if (remainder != 0) {
+                throw new ArithmeticException("Remainder of division: " + remainder);
+            }
+        }
+        return quotient;
+    }
+
+    private static BigInteger[] divide(BigInteger[] dividend, BigInteger[] divisor, int quotientSize) {
+
+        BigInteger[] quotient = new BigInteger[quotientSize];
+        for (int i = 0; i < dividend.length; i++) {
+            BigInteger remainder = dividend[i];
+            for (int j = Math.max(1, i - quotientSize + 1); j < Math.min(divisor.length, i + 1); j++) {
+                remainder = remainder.subtract(divisor[j].multiply(quotient[i - j]));
+            }
+            if (i < quotientSize) {
+                BigInteger[] division = remainder.divideAndRemainder(divisor[0]);
+                if (remainder.signum() < 0 || division[1].signum() != 0) {
+                    throw new ArithmeticException("Remainder of division: " + remainder);
+                }
+                quotient[i] = division[0];
+            } else if (remainder.signum() != 0) {
+                throw new ArithmeticException("Remainder of division: " + remainder);
+            }
+        }
+        return quotient;
+    }
+
+    private static long[] reverse(long[] counts) {
+
+        long[] reversed = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            reversed[i] = counts[counts.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    private static BigInteger[] reverse(BigInteger[] counts) {
+
+        BigInteger[] reversed = new BigInteger[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            reversed[i] = counts[counts.length - 1 - i];
+        }
+        return reversed;
+    }
+
+    private int size() {
+
+        return counts != null ? counts.length : largeCounts.length;
+    }
+
+    private int index(int result) {
+
+        long index = (long) result - minimum;
+        return index >= size() ? -1 : (int) Math.max(index, -1);
+    }
+
+    private long[] cumulativeCounts() {
+
+        long[] cumulative = cumulativeCounts;
+        if (cumulative == null) {
+            cumulative = new long[counts.length];
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                sum += counts[i];
+                cumulative[i] = sum;
+            }
+            cumulativeCounts = cumulative;
+        }
+        return cumulative;
+    }
+
+    private BigInteger[] largeCumulativeCounts() {
+
+        BigInteger[] cumulative = largeCumulativeCounts;
+        if (cumulative == null) {
+            cumulative = new BigInteger[largeCounts.length];
+            BigInteger sum = BigInteger.ZERO;
+            for (int i = 0; i < largeCounts.length; i++) {
+                sum = sum.add(largeCounts[i]);
+                cumulative[i] = sum;
+            }
+            largeCumulativeCounts = cumulative;
+        }
+        return cumulative;
+    }
+
+    private BigInteger[] largeCounts() {
+
+        return counts != null ? Convolution.exactly(counts) : largeCounts;
+    }
+
+    private static double ratio(BigInteger dividend, BigInteger divisor) {
+
+        return new BigDecimal(dividend).divide(new BigDecimal(divisor), MathContext.DECIMAL64).doubleValue();
+    }
+
+    private static long sum(long[] counts) {
+
+        long sum = 0;
+        for (long count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+}
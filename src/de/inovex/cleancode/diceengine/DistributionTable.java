@@ -0,0 +1,283 @@
+package de.inovex.cleancode.diceengine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Precomputed results of plain dice, i.e. without kept, rerolled or exploding dice, read from a memory-mapped file.
+ * <p>
+ * A table is generated once by {@link #write(Path, int, int)} or {@link #main(String[])} and loaded by
+ * {@link #load(Path)}. Result lookups read their counts straight from the mapped file, neither the table nor its
+ * results are deserialized to the heap. Once {@link #install(DistributionTable) installed}, {@link Dice#distribution()}
+ * and {@link Dice#resultDistribution()} are answered by the table, including the distributions of pools summed up by
+ * the calculator, dice outside of the table are computed as before. Distributions copy their counts from the mapped
+ * file once, since they are kept in the distribution cache of all dice afterwards.
+ * <p>
+ * The file starts with a magic number, the format version and the maximal sides and dice, followed by the offset of
+ * each entry, ordered by sides and then by dice. Each entry holds the overall count and the count of each result from
+ * the minimal result on. Distributions whose overall count exceeds the {@code long} range are not stored.
+ */
+public final class DistributionTable {
+
+    private static final int MAGIC = 0x44494345; // "DICE"
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 4 * Integer.BYTES;
+
+    private static final long MISSING = -1;
+
+    private static volatile DistributionTable installed;
+
+    private final ByteBuffer buffer;
+
+    private final int maxSides;
+
+    private final int maxDice;
+
+    private DistributionTable(ByteBuffer buffer, int maxSides, int maxDice) {
+
+        this.buffer = buffer;
+        this.maxSides = maxSides;
+        this.maxDice = maxDice;
+    }
+
+    /**
+     * Generates a table file: {@code DistributionTable <file> <max sides> <max dice>}.
+     */
+    public static void main(String[] args) throws IOException {
+
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Usage: DistributionTable <file> <max sides> <max dice>");
+        }
+        write(Path.of(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+    }
+
+    /**
+     * Writes the results of all dice of one up to the given sides and one up to the given number of dice.
+     */
+    public static void write(Path file, int maxSides, int maxDice) throws IOException {
+
+        if (maxSides < 1) {
+            throw new IllegalArgumentException("Sides must be positive. Invalid sides: " + maxSides);
+        }
+        if (maxDice < 1) {
+            throw new IllegalArgumentException("Number of dice must be positive. Invalid number: " + maxDice);
+        }
+
+        long[] offsets = new long[Math.multiplyExact(maxSides, maxDice)];
+        long offset = HEADER_SIZE + (long) offsets.length * Long.BYTES;
+        for (int sides = 1; sides <= maxSides; sides++) {
+            for (int dice = 1; dice <= maxDice; dice++) {
+                if (fitsLong(sides, dice)) {
+                    offsets[index(sides, dice, maxDice)] = offset;
+                    offset += (2L + (long) dice * (sides - 1)) * Long.BYTES;
+                } else {
+                    offsets[index(sides, dice, maxDice)] = MISSING;
+                }
+            }
+        }
+        if (offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Table exceeds the size of a mapped file. Invalid size: " + offset);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(maxSides);
+            out.writeInt(maxDice);
+            for (long entry : offsets) {
+                out.writeLong(entry);
+            }
+            for (int sides = 1; sides <= maxSides; sides++) {
+                for (int dice = 1; dice <= maxDice; dice++) {
+                    if (offsets[index(sides, dice, maxDice)] != MISSING) {
+                        Distribution distribution = Distribution.uniformSum(sides, dice);
+                        out.writeLong(distribution.overall());
+                        for (int result = distribution.minimum(); result <= distribution.maximum(); result++) {
+                            out.writeLong(distribution.count(result));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps the given table file, which stays mapped as long as the table is referenced.
+     *
+     * @throws IOException if the file cannot be read or is no table of the supported version
+     */
+    public static DistributionTable load(Path file) throws IOException {
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid size of distribution table " + file + ": " + channel.size());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("No distribution table: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported version of distribution table " + file + ": " + buffer.getInt(4));
+        }
+        int maxSides = buffer.getInt(8);
+        int maxDice = buffer.getInt(12);
+        if (maxSides < 1 || maxDice < 1 || HEADER_SIZE + (long) maxSides * maxDice * Long.BYTES > buffer.capacity()) {
+            throw new IOException("Corrupt header of distribution table " + file);
+        }
+        return new DistributionTable(buffer, maxSides, maxDice);
+    }
+
+    /**
+     * Answers the results of all dice by the given table from now on, {@code null} removes the installed table.
+     */
+    public static void install(DistributionTable table) {
+
+        installed = table;
+    }
+
+    public static DistributionTable installed() {
+
+        return installed;
+    }
+
+    public int maxSides() {
+
+        return maxSides;
+    }
+
+    public int maxDice() {
+
+        return maxDice;
+    }
+
+    /**
+     * @return the results of the given dice read from the table, {@code null} if they are not contained.
+     */
+    public List<Result> results(Dice.Key key) {
+
+        long offset = offset(key);
+        if (offset == MISSING) {
+            return null;
+        }
+        return new MappedResults(buffer, (int) offset, key.dice() + key.mod(), size(key));
+    }
+
+    /**
+     * @return the distribution of the given dice read from the table, {@code null} if they are not contained.
+     */
+    public Distribution distribution(Dice.Key key) {
+
+        long offset = offset(key);
+        if (offset == MISSING) {
+            return null;
+        }
+        long[] counts = new long[size(key)];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buffer.getLong((int) offset + (i + 1) * Long.BYTES);
+        }
+        return Distribution.of(key.dice() + key.mod(), counts);
+    }
+
+    /**
+     * @return the results of the given dice read from the installed table, {@code null} if there is none.
+     */
+    static List<Result> lookup(Dice.Key key) {
+
+        DistributionTable table = installed;
+        return table == null ? null : table.results(key);
+    }
+
+    /**
+     * @return the distribution of the given dice read from the installed table, {@code null} if there is none.
+     */
+    static Distribution lookupDistribution(Dice.Key key) {
+
+        DistributionTable table = installed;
+        return table == null ? null : table.distribution(key);
+    }
+
+    /**
+     * @return the offset of the entry of the given dice, {@link #MISSING} if they are not contained.
+     */
+    private long offset(Dice.Key key) {
+
+        if (!key.isUniformSum() || key.sides() < 1 || key.sides() > maxSides || key.dice() < 1
+            || key.dice() > maxDice) {
+            return MISSING;
+        }
+        return buffer.getLong((int) (HEADER_SIZE + index(key.sides(), key.dice(), maxDice) * (long) Long.BYTES));
+    }
+
+    private static int size(Dice.Key key) {
+
+        return key.dice() * (key.sides() - 1) + 1;
+    }
+
+    private static int index(int sides, int dice, int maxDice) {
+
+        return (sides - 1) * maxDice + dice - 1;
+    }
+
+    private static boolean fitsLong(int sides, int dice) {
+
+        long overall = 1;
+        for (int i = 0; i < dice; i++) {
+            if (overall > Long.MAX_VALUE / sides) {
+                return false;
+            }
+            overall *= sides;
+        }
+        return true;
+    }
+
+    /**
+     * Results of a single entry, which are read from the mapped file on each access.
+     */
+    private static class MappedResults extends AbstractList<Result> implements RandomAccess {
+
+        private final ByteBuffer buffer;
+
+        private final int offset;
+
+        private final int minimum;
+
+        private final int size;
+
+        MappedResults(ByteBuffer buffer, int offset, int minimum, int size) {
+
+            this.buffer = buffer;
+            this.offset = offset;
+            this.minimum = minimum;
+            this.size = size;
+        }
+
+        @Override
+        public Result get(int index) {
+
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            // absolute reads leave the shared buffer untouched, so concurrent lookups need no copy of it
+            return new Result(minimum + index, buffer.getLong(offset + (index + 1) * Long.BYTES), buffer.getLong(offset));
+        }
+
+        @Override
+        public int size() {
+
+            return size;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package de.inovex.cleancode.diceengine;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Counters and latency histograms of rolls, distribution builds and probability queries of all dice.
+ * <p>
+ * Metrics are disabled by default and are enabled by {@link #enable()} or the system property
+ * {@code diceengine.metrics}. While disabled, a roll costs a single volatile read, and a probability query costs a
+ * volatile read and a check of its flight recorder event, unless a recording enables that event. Counters are striped,
+ * so concurrent rolls do not contend on them.
+ * <p>
+ * Independently of these metrics, distribution builds and probability queries are reported as JDK Flight Recorder
+ * events {@code diceengine.DistributionBuild} and {@code diceengine.ProbabilityQuery}, which are disabled unless
+ * enabled by the settings of a recording.
+ */
+public final class EngineMetrics {
+
+    private static volatile boolean enabled = Boolean.getBoolean("diceengine.metrics");
+
+    private static final LongAdder ROLLS = new LongAdder();
+
+    private static final LongAdder QUERIES = new LongAdder();
+
+    private static final LongAdder QUERIED_CATEGORIES = new LongAdder();
+
+    private static final LatencyHistogram BUILD_LATENCIES = new LatencyHistogram();
+
+    private static final LatencyHistogram QUERY_LATENCIES = new LatencyHistogram();
+
+    private static final EventType QUERY_EVENT = EventType.getEventType(ProbabilityQueryEvent.class);
+
+    private EngineMetrics() {
+    }
+
+    public static boolean isEnabled() {
+
+        return enabled;
+    }
+
+    public static void enable() {
+
+        enabled = true;
+    }
+
+    public static void disable() {
+
+        enabled = false;
+    }
+
+    /**
+     * Resets all counters and histograms, the statistics of the caches are kept.
+     */
+    public static void reset() {
+
+        ROLLS.reset();
+        QUERIES.reset();
+        QUERIED_CATEGORIES.reset();
+        BUILD_LATENCIES.reset();
+        QUERY_LATENCIES.reset();
+    }
+
+    public static Snapshot snapshot() {
+
+        return new Snapshot(
+            ROLLS.sum(),
+            QUERIES.sum(),
+            QUERIED_CATEGORIES.sum(),
+            BUILD_LATENCIES.snapshot(),
+            QUERY_LATENCIES.snapshot(),
+            Dice.distributionCache().statistics(),
+            DiceExpression.compiledCache().statistics());
+    }
+
+    static void recordRolls(long rolls) {
+
+        if (enabled) {
+            ROLLS.add(rolls);
+        }
+    }
+
+    /**
+     * @return the distribution of the given dice, whose build is measured.
+     */
+    static Distribution buildDistribution(Dice.Key key) {
+
+        DistributionBuildEvent event = new DistributionBuildEvent();
+        event.begin();
+        long start = enabled ? System.nanoTime() : 0;
+
+        Distribution distribution = key.distribution();
+
+        if (start != 0) {
+            BUILD_LATENCIES.record(System.nanoTime() - start);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.sides = key.sides();
+            event.dice = key.dice();
+            event.keep = key.keep();
+            event.explosions = key.explosions();
+            event.supportSize = distribution.maximum() - distribution.minimum() + 1;
+            event.large = distribution.isLarge();
+            event.commit();
+        }
+        return distribution;
+    }
+
+    /**
+     * @return whether probability queries are measured, either by these metrics or by a recording enabling their
+     * flight recorder event. Callers skip {@link #measureQuery(List, int, Supplier)} otherwise, so that unmeasured
+     * queries allocate nothing for their measurement.
+     */
+    public static boolean isQueryMeasured() {
+
+        return enabled || QUERY_EVENT.isEnabled();
+    }
+
+    /**
+     * Measures a probability query of the given categories of the given dice.
+     *
+     * @return the result of the query.
+     */
+    public static double[] measureQuery(List<Dice> dice, int categories, Supplier<double[]> query) {
+
+        ProbabilityQueryEvent event = new ProbabilityQueryEvent();
+        event.begin();
+        long start = enabled ? System.nanoTime() : 0;
+
+        double[] probabilities = query.get();
+
+        if (start != 0) {
+            QUERY_LATENCIES.record(System.nanoTime() - start);
+            QUERIES.increment();
+            QUERIED_CATEGORIES.add(categories);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            long supportSize = 1;
+            for (Dice d : dice) {
+                event.dice += d.dice();
+                supportSize += (long) d.maximum() - d.minimum();
+            }
+            event.groups = dice.size();
+            event.categories = categories;
+            event.supportSize = supportSize;
+            event.commit();
+        }
+        return probabilities;
+    }
+
+    /**
+     * @param rolls number of results of all rolls
+     * @param queries number of probability queries
+     * @param queriedCategories number of result categories of all probability queries
+     * @param buildLatencies latencies of building distributions of dice, which excludes cache hits
+     * @param queryLatencies latencies of probability queries
+     */
+    public record Snapshot(
+        long rolls,
+        long queries,
+        long queriedCategories,
+        LatencyHistogram.Snapshot buildLatencies,
+        LatencyHistogram.Snapshot queryLatencies,
+        LruCache.Statistics distributionCache,
+        LruCache.Statistics expressionCache) {
+    }
+
+    @Name("diceengine.DistributionBuild")
+    @Label("Distribution Build")
+    @Description("Computation of the distribution of dice which were not cached")
+    @Category("Dice Engine")
+    @Enabled(false)
+    @StackTrace(false)
+    static class DistributionBuildEvent extends Event {
+
+        @Label("Sides")
+        int sides;
+
+        @Label("Dice")
+        int dice;
+
+        @Label("Kept Dice")
+        int keep;
+
+        @Label("Explosions")
+        int explosions;
+
+        @Label("Support Size")
+        @Description("Number of results between the minimal and the maximal result")
+        int supportSize;
+
+        @Label("Large Counts")
+        @Description("Whether the counts exceed the long range")
+        boolean large;
+    }
+
+    @Name("diceengine.ProbabilityQuery")
+    @Label("Probability Query")
+    @Category("Dice Engine")
+    @Enabled(false)
+    @StackTrace(false)
+    static class ProbabilityQueryEvent extends Event {
+
+        @Label("Dice Groups")
+        int groups;
+
+        @Label("Dice")
+        long dice;
+
+        @Label("Categories")
+        int categories;
+
+        @Label("Support Size")
+        @Description("Number of results between the minimal and the maximal result of the pool")
+        long supportSize;
+    }
+}
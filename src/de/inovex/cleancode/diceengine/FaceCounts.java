@@ -0,0 +1,79 @@
+package de.inovex.cleancode.diceengine;
+
+import java.math.BigInteger;
+
+/**
+ * Distribution of a single dice which is rerolled once on low results and explodes on its highest face, i.e. is
+ * rolled again and added.
+ * <p>
+ * The generating function of a dice exploding up to {@code n} times is the one of a single roll, whose highest face is
+ * replaced by that face plus the dice exploding up to {@code n - 1} times. Truncating this recursion after the given
+ * number of explosions misses only the rolls showing the highest face on every roll, whose probability is reported as
+ * the tail mass.
+ */
+final class FaceCounts {
+
+    private FaceCounts() {
+    }
+
+    /**
+     * @param rerollAtMost results up to this value are rerolled once, zero disables rerolling
+     * @param explosions maximal number of additional rolls on the highest face
+     */
+    static Distribution of(int sides, int rerollAtMost, int explosions) {
+
+        BigInteger[] roll = roll(sides, rerollAtMost);
+        BigInteger overall = BigInteger.valueOf(sides).pow(rerollAtMost > 0 ? 2 : 1);
+
+        BigInteger[] exploding = roll;
+        BigInteger scale = BigInteger.ONE;
+        for (int depth = 1; depth <= explosions; depth++) {
+            scale = scale.multiply(overall);
+            BigInteger[] next = new BigInteger[sides * (depth + 1)];
+            for (int i = 0; i < next.length; i++) {
+                next[i] = i < sides - 1 ? roll[i].multiply(scale) : BigInteger.ZERO;
+            }
+            for (int i = 0; i < exploding.length; i++) {
+                next[sides + i] = roll[sides - 1].multiply(exploding[i]);
+            }
+            exploding = next;
+        }
+        return Distribution.of(1, exploding);
+    }
+
+    /**
+     * @return the probability of a roll of the given number of dice with a dice exploding beyond the given depth.
+     */
+    static double tailMass(int sides, int rerollAtMost, int explosions, int dice) {
+
+        double highest = rerollAtMost > 0 ? (sides + rerollAtMost) / ((double) sides * sides) : 1.0 / sides;
+        double single = Math.pow(highest, explosions + 1.0);
+        return -Math.expm1(dice * Math.log1p(-single));
+    }
+
+    /**
+     * @return the smallest number of explosions whose tail mass does not exceed the given tolerance.
+     */
+    static int explosions(int sides, int rerollAtMost, int dice, double tolerance) {
+
+        int explosions = 0;
+        while (tailMass(sides, rerollAtMost, explosions, dice) > tolerance) {
+            explosions++;
+        }
+        return explosions;
+    }
+
+    /**
+     * @return the counts of the results of a single roll, starting with one.
+     */
+    private static BigInteger[] roll(int sides, int rerollAtMost) {
+
+        BigInteger[] counts = new BigInteger[sides];
+        for (int face = 1; face <= sides; face++) {
+            // each rerolled first result leads to every face once, a kept first result counts once per unused reroll
+            long count = rerollAtMost == 0 ? 1 : rerollAtMost + (face > rerollAtMost ? sides : 0);
+            counts[face - 1] = BigInteger.valueOf(count);
+        }
+        return counts;
+    }
+}
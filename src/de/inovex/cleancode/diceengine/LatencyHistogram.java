@@ -0,0 +1,107 @@
+package de.inovex.cleancode.diceengine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in buckets of powers of two nanoseconds, i.e. bucket {@code i} counts the
+ * latencies of at least {@code 2^i} and less than {@code 2^(i+1)} nanoseconds. Recording costs a single striped
+ * increment, so the relative error of quantiles is bounded by a factor of two.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+
+        long latency = Math.max(nanos, 1);
+        buckets[BUCKETS - 1 - Long.numberOfLeadingZeros(latency)].increment();
+        totalNanos.add(latency);
+    }
+
+    public void reset() {
+
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+    }
+
+    public Snapshot snapshot() {
+
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, totalNanos.sum());
+    }
+
+    /**
+     * @param counts number of latencies per bucket
+     * @param totalNanos sum of all latencies
+     */
+    public record Snapshot(long[] counts, long totalNanos) {
+
+        public long count() {
+
+            return Arrays.stream(counts).sum();
+        }
+
+        public double meanNanos() {
+
+            long count = count();
+            return count == 0 ? 0.0 : totalNanos / (double) count;
+        }
+
+        /**
+         * @param quantile value between zero and one, e.g. 0.99
+         * @return the upper bound of the bucket containing the quantile, zero if nothing was recorded.
+         */
+        public long quantileNanos(double quantile) {
+
+            if (!(quantile >= 0.0 && quantile <= 1.0)) {
+                throw new IllegalArgumentException(
+                    "Quantile must be between zero and one. Invalid quantile: " + quantile);
+            }
+            long rank = (long) Math.ceil(quantile * count());
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return i == counts.length - 1 ? Long.MAX_VALUE : (2L << i) - 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            return other instanceof Snapshot && Arrays.equals(counts, ((Snapshot) other).counts)
+                && totalNanos == ((Snapshot) other).totalNanos;
+        }
+
+        @Override
+        public int hashCode() {
+
+            return 31 * Arrays.hashCode(counts) + Long.hashCode(totalNanos);
+        }
+
+        @Override
+        public String toString() {
+
+            return "Snapshot[count=" + count() + ", meanNanos=" + meanNanos() + "]";
+        }
+    }
+}
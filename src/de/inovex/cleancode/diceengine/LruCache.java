@@ -0,0 +1,137 @@
+package de.inovex.cleancode.diceengine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Thread-safe cache with a bounded number of entries, evicting the least recently used entry first.
+ * <p>
+ * Values are loaded outside the lock, so concurrent misses of the same key may load it more than once, but only the
+ * first loaded value is kept and returned to all callers.
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Lock lock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private int capacity;
+
+    public LruCache(int capacity) {
+
+        this.capacity = validCapacity(capacity);
+    }
+
+    public V get(K key, Function<? super K, ? extends V> loader) {
+
+        V value;
+        lock.lock();
+        try {
+            value = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+
+        misses.increment();
+        V loaded = loader.apply(key);
+        lock.lock();
+        try {
+            V present = entries.putIfAbsent(key, loaded);
+            evictExceedingEntries();
+            return present != null ? present : loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+
+        lock.lock();
+        try {
+            return capacity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the maximal number of entries, evicting the least recently used entries if necessary.
+     */
+    public void setCapacity(int capacity) {
+
+        lock.lock();
+        try {
+            this.capacity = validCapacity(capacity);
+            evictExceedingEntries();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Statistics statistics() {
+
+        lock.lock();
+        try {
+            return new Statistics(hits.sum(), misses.sum(), evictions.sum(), entries.size(), capacity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evictExceedingEntries() {
+
+        Iterator<K> eldest = entries.keySet().iterator();
+        while (entries.size() > capacity) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static int validCapacity(int capacity) {
+
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative. Invalid capacity: " + capacity);
+        }
+        return capacity;
+    }
+
+    public record Statistics(
+        long hits,
+        long misses,
+        long evictions,
+        int size,
+        int capacity) {
+
+        public double hitRate() {
+
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : hits / (double) requests;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package de.inovex.cleancode.diceengine;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Combination counts of the sum of the highest dice of a roll, without enumerating all {@code sides^dice} rolls.
+ * <p>
+ * The faces are assigned from the highest to the lowest one. After each face, a state is the number of dice showing
+ * a higher face together with the sum of the kept ones among them. Once all kept dice are assigned, the remaining
+ * dice show any lower face, so only states with less than {@code keep} assigned dice are carried on. This costs
+ * O(sides^2 * keep^2 * dice) operations.
+ */
+final class OrderStatistics {
+
+    private OrderStatistics() {
+    }
+
+    /**
+     * @return the combination counts of all sums of the {@code keep} highest dice, starting with the minimal sum.
+     * @throws ArithmeticException if the number of combinations exceeds the {@code long} range
+     */
+    static long[] keepHighest(int sides, int dice, int keep) {
+
+        // fails early if the overall count, which bounds every single count, exceeds the long range
+        long overall = power(sides, dice);
+        if (keep == 0) {
+            return new long[] {overall};
+        }
+
+        long[][] binomials = new long[keep][];
+        for (int assigned = 0; assigned < keep; assigned++) {
+            binomials[assigned] = binomials(dice - assigned);
+        }
+
+        long[] counts = new long[keep * (sides - 1) + 1];
+        long[][] ways = new long[keep][keep * sides + 1];
+        ways[0][0] = 1;
+        for (int face = sides; face >= 1; face--) {
+            long[][] next = new long[keep][keep * sides + 1];
+            for (int assigned = 0; assigned < keep; assigned++) {
+                for (int sum = 0; sum <= assigned * sides; sum++) {
+                    if (ways[assigned][sum] == 0) {
+                        continue;
+                    }
+                    for (int showing = 0; showing <= dice - assigned; showing++) {
+                        long count = Math.multiplyExact(ways[assigned][sum], binomials[assigned][showing]);
+                        if (assigned + showing < keep) {
+                            long[] target = next[assigned + showing];
+                            target[sum + showing * face] = Math.addExact(target[sum + showing * face], count);
+                        } else {
+                            int index = sum + (keep - assigned) * face - keep;
+                            long lower = power(face - 1, dice - assigned - showing);
+                            counts[index] = Math.addExact(counts[index], Math.multiplyExact(count, lower));
+                        }
+                    }
+                }
+            }
+            ways = next;
+        }
+        return counts;
+    }
+
+    /**
+     * @return the combination counts of all sums of the {@code keep} highest dice without any range restriction.
+     */
+    static BigInteger[] keepHighestExactly(int sides, int dice, int keep) {
+
+        BigInteger overall = BigInteger.valueOf(sides).pow(dice);
+        if (keep == 0) {
+            return new BigInteger[] {overall};
+        }
+
+        BigInteger[][] binomials = new BigInteger[keep][];
+        for (int assigned = 0; assigned < keep; assigned++) {
+            binomials[assigned] = binomialsExactly(dice - assigned);
+        }
+
+        BigInteger[] counts = zeros(keep * (sides - 1) + 1);
+        BigInteger[][] ways = new BigInteger[keep][];
+        for (int assigned = 0; assigned < keep; assigned++) {
+            ways[assigned] = zeros(keep * sides + 1);
+        }
+        ways[0][0] = BigInteger.ONE;
+        for (int face = sides; face >= 1; face--) {
+            BigInteger[][] next = new BigInteger[keep][];
+            for (int assigned = 0; assigned < keep; assigned++) {
+                next[assigned] = zeros(keep * sides + 1);
+            }
+            for (int assigned = 0; assigned < keep; assigned++) {
+                for (int sum = 0; sum <= assigned * sides; sum++) {
+                    if (ways[assigned][sum].signum() == 0) {
+                        continue;
+                    }
+                    for (int showing = 0; showing <= dice - assigned; showing++) {
+                        BigInteger count = ways[assigned][sum].multiply(binomials[assigned][showing]);
+                        if (assigned + showing < keep) {
+                            BigInteger[] target = next[assigned + showing];
+                            target[sum + showing * face] = target[sum + showing * face].add(count);
+                        } else {
+                            int index = sum + (keep - assigned) * face - keep;
+                            BigInteger lower = BigInteger.valueOf(face - 1).pow(dice - assigned - showing);
+                            counts[index] = counts[index].add(count.multiply(lower));
+                        }
+                    }
+                }
+            }
+            ways = next;
+        }
+        return counts;
+    }
+
+    private static long power(int base, int exponent) {
+
+        long power = 1;
+        for (int e = 0; e < exponent; e++) {
+            power = Math.multiplyExact(power, base);
+        }
+        return power;
+    }
+
+    private static long[] binomials(int n) {
+
+        long[] binomials = new long[n + 1];
+        binomials[0] = 1;
+        for (int k = 0; k < n; k++) {
+            binomials[k + 1] = Math.multiplyExact(binomials[k], n - k) / (k + 1);
+        }
+        return binomials;
+    }
+
+    private static BigInteger[] binomialsExactly(int n) {
+
+        BigInteger[] binomials = new BigInteger[n + 1];
+        binomials[0] = BigInteger.ONE;
+        for (int k = 0; k < n; k++) {
+            binomials[k + 1] = binomials[k].multiply(BigInteger.valueOf(n - k)).divide(BigInteger.valueOf(k + 1));
+        }
+        return binomials;
+    }
+
+    private static BigInteger[] zeros(int length) {
+
+        BigInteger[] zeros = new BigInteger[length];
+        Arrays.fill(zeros, BigInteger.ZERO);
+        return zeros;
+    }
+}
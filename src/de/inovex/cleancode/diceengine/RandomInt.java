@@ -1,11 +1,69 @@
 package de.inovex.cleancode.diceengine;
 
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
 @FunctionalInterface
 public interface RandomInt {
 
+    String DEFAULT_ALGORITHM = "L64X128MixRandom";
+
     /**
      * @param bound exclusive positive bound
      * @return a pseudo-randomly choosen int between zero (incl) and the bound (excl).
      */
     int next(int bound);
+
+    /**
+     * Fills the target between both indices with pseudo-randomly chosen ints between zero (incl) and the bound (excl).
+     * Implementations may override this to produce many values at once, or to look up their generator only once.
+     *
+     * @param bound exclusive positive bound
+     * @param from first index to fill (incl)
+     * @param to last index to fill (excl)
+     */
+    default void nextInts(int bound, int[] target, int from, int to) {
+
+        for (int i = from; i < to; i++) {
+            target[i] = next(bound);
+        }
+    }
+
+    /**
+     * @return a source backed by the given generator, which must not be shared between threads unless it is
+     * thread-safe.
+     */
+    static RandomInt of(RandomGenerator generator) {
+
+        return generator::nextInt;
+    }
+
+    /**
+     * @param algorithm name of a {@link RandomGenerator} algorithm, e.g. {@value #DEFAULT_ALGORITHM}
+     * @return a source using an independent, randomly seeded generator of the given algorithm per thread, so
+     * concurrent threads never contend on a shared seed.
+     * @throws IllegalArgumentException if the algorithm is unknown
+     */
+    static RandomInt threadLocal(String algorithm) {
+
+        RandomGeneratorFactory<RandomGenerator> factory = RandomGeneratorFactory.of(algorithm);
+        ThreadLocal<RandomGenerator> generators = ThreadLocal.withInitial(factory::create);
+        return new RandomInt() {
+
+            @Override
+            public int next(int bound) {
+
+                return generators.get().nextInt(bound);
+            }
+
+            @Override
+            public void nextInts(int bound, int[] target, int from, int to) {
+
+                RandomGenerator generator = generators.get();
+                for (int i = from; i < to; i++) {
+                    target[i] = generator.nextInt(bound);
+                }
+            }
+        };
+    }
 }
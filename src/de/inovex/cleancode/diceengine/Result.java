@@ -2,6 +2,6 @@ package de.inovex.cleancode.diceengine;
 
 public record Result(
     int result,
-    int count,
-    int overall) {
+    long count,
+    long overall) {
 }
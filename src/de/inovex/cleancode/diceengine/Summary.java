@@ -0,0 +1,18 @@
+package de.inovex.cleancode.diceengine;
+
+/**
+ * Key figures of the results of dice.
+ *
+ * @param mean expected result
+ * @param variance expected squared deviation of a result from the mean
+ * @param minimum smallest possible result
+ * @param median smallest result which is at least as large as half of all results
+ * @param maximum largest possible result
+ */
+public record Summary(double mean, double variance, int minimum, int median, int maximum) {
+
+    public double standardDeviation() {
+
+        return Math.sqrt(variance);
+    }
+}
@@ -0,0 +1,178 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.Distribution;
+
+/**
+ * Approximates the distribution of the sum of dice by its first four cumulants, which are additive over independent
+ * dice. Cumulants of plain dice are given in closed form, those of other dice are taken from the distribution of a
+ * single dice, or of the whole group if dice are kept, so that building the approximation is linear in the number of
+ * groups.
+ * <p>
+ * The normal approximation uses mean and variance only. Its absolute error is of order {@code 1/sqrt(n)} for
+ * {@code n} dice, or {@code 1/n} for symmetric pools, e.g. below 3e-4 for 100d6 but 0.02 for 100 exploding d6. The
+ * Edgeworth expansion additionally corrects skewness, kurtosis and the lattice of integer results. Its absolute error
+ * is of order {@code 1/n^(3/2)}, or {@code 1/n^2} for symmetric pools, e.g. below 1e-6 for 100d6 and 1e-4 for 100
+ * exploding d6. Both are evaluated at half results, which corrects the continuity of integer results. Neither suits
+ * pools of few dice with many sides, e.g. the error of the Edgeworth expansion exceeds 5e-3 for 3d6+2d100. Therefore
+ * {@link #effectiveDice()} weighs the dice by their variances, the errors above hold for pools of that many effective
+ * dice.
+ */
+final class AnalyticApproximation {
+
+    private final long minimum;
+
+    private final long maximum;
+
+    private final double mean;
+
+    private final double deviation;
+
+    private final double skewness;
+
+    private final double excessKurtosis;
+
+    private final double lattice;
+
+    private final double effectiveDice;
+
+    private AnalyticApproximation(
+        long minimum, long maximum, double mean, double variance, double thirdCumulant, double fourthCumulant,
+        double squaredVariances, boolean edgeworth) {
+
+        this.minimum = minimum;
+        this.maximum = maximum;
+        this.mean = mean;
+        this.deviation = Math.sqrt(variance);
+        this.skewness = edgeworth && variance > 0 ? thirdCumulant / (variance * deviation) : 0.0;
+        this.excessKurtosis = edgeworth && variance > 0 ? fourthCumulant / (variance * variance) : 0.0;
+        this.lattice = edgeworth && variance > 0 ? 1 / (24 * variance) : 0.0;
+        this.effectiveDice = variance > 0 ? variance * variance / squaredVariances : 0.0;
+    }
+
+    /**
+     * @param edgeworth whether skewness and kurtosis are corrected, otherwise the normal distribution is used
+     */
+    static AnalyticApproximation of(boolean edgeworth, Dice... dice) {
+
+        long minimum = 0;
+        long maximum = 0;
+        // the four cumulants followed by the sum of the squared variances of all dice
+        double[] cumulants = new double[5];
+        for (Dice d : dice) {
+            minimum += d.minimum();
+            maximum += d.maximum();
+            cumulants[0] += d.mod();
+            if (d.keep() == d.dice() && d.rerollAtMost() == 0 && d.explosions() == 0) {
+                double squaredSides = (double) d.sides() * d.sides();
+                cumulants[0] += d.dice() * (d.sides() + 1) / 2.0;
+                double variance = (squaredSides - 1) / 12.0;
+                cumulants[1] += d.dice() * variance;
+                cumulants[3] -= d.dice() * (squaredSides * squaredSides - 1) / 120.0;
+                cumulants[4] += d.dice() * variance * variance;
+            } else if (d.keep() == d.dice()) {
+                Dice.Key single = new Dice.Key(d.sides(), 1, 0, 1, false, d.rerollAtMost(), d.explosions());
+                add(cumulants, Dice.distribution(single), d.dice());
+            } else {
+                add(cumulants, d.distribution(), 1);
+                cumulants[0] -= d.mod();
+            }
+        }
+        return new AnalyticApproximation(
+            minimum, maximum, cumulants[0], cumulants[1], cumulants[2], cumulants[3], cumulants[4], edgeworth);
+    }
+
+    /**
+     * Adds the cumulants of the given distribution, taken the given number of times.
+     */
+    private static void add(double[] cumulants, Distribution distribution, int times) {
+
+        double[] probabilities = distribution.probabilities();
+        double mean = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            mean += probabilities[i] * i;
+        }
+        double[] moments = new double[5];
+        for (int i = 0; i < probabilities.length; i++) {
+            double deviation = i - mean;
+            double power = probabilities[i] * deviation;
+            for (int k = 2; k <= 4; k++) {
+                power *= deviation;
+                moments[k] += power;
+            }
+        }
+        cumulants[0] += times * (distribution.minimum() + mean);
+        cumulants[1] += times * moments[2];
+        cumulants[2] += times * moments[3];
+        cumulants[3] += times * (moments[4] - 3 * moments[2] * moments[2]);
+        cumulants[4] += times * moments[2] * moments[2];
+    }
+
+    /**
+     * @return the number of equal dice whose sum has the same ratio of its variance to the spread of the variances of
+     * its dice, e.g. 100 for 100d6 but less than 2 for 1d1000+100d6, since a single dice dominates the sum.
+     */
+    double effectiveDice() {
+
+        return effectiveDice;
+    }
+
+    /**
+     * @return the approximate probability of a result between both bounds, including both.
+     */
+    double probabilityBetween(long from, long to) {
+
+        long first = Math.max(from, minimum);
+        long last = Math.min(to, maximum);
+        if (first > last) {
+            return 0.0;
+        }
+        // differences of upper tails keep their precision above the mean, those of lower tails below
+        double probability = first > mean
+            ? probabilityAbove(first - 1) - probabilityAbove(last)
+            : probabilityAtMost(last) - probabilityAtMost(first - 1);
+        return Math.min(Math.max(probability, 0.0), 1.0);
+    }
+
+    double probabilityAtMost(long result) {
+
+        if (result < minimum) {
+            return 0.0;
+        }
+        if (result >= maximum) {
+            return 1.0;
+        }
+        double z = (result + 0.5 - mean) / deviation;
+        return clamp(NormalDistribution.cdf(z) - NormalDistribution.density(z) * correction(z));
+    }
+
+    double probabilityAbove(long result) {
+
+        if (result < minimum) {
+            return 1.0;
+        }
+        if (result >= maximum) {
+            return 0.0;
+        }
+        double z = (result + 0.5 - mean) / deviation;
+        return clamp(NormalDistribution.upperTail(z) + NormalDistribution.density(z) * correction(z));
+    }
+
+    /**
+     * @return the Edgeworth terms of order {@code 1/sqrt(n)} and {@code 1/n}, by Hermite polynomials of z, including
+     * Sheppard's correction of the variance of integer results.
+     */
+    private double correction(double z) {
+
+        double square = z * z;
+        double he2 = square - 1;
+        double he3 = z * (square - 3);
+        double he5 = z * (square * (square - 10) + 15);
+        return skewness / 6 * he2 + excessKurtosis / 24 * he3 + skewness * skewness / 72 * he5 - lattice * z;
+    }
+
+    private static double clamp(double probability) {
+
+        return Math.min(Math.max(probability, 0.0), 1.0);
+    }
+}
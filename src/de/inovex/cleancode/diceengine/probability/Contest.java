@@ -0,0 +1,11 @@
+package de.inovex.cleancode.diceengine.probability;
+
+/**
+ * Outcome probabilities of an opposed roll of an attacker against a defender.
+ *
+ * @param win probability that the attacker rolls a greater result
+ * @param tie probability that both roll the same result
+ * @param loss probability that the defender rolls a greater result
+ */
+public record Contest(double win, double tie, double loss) {
+}
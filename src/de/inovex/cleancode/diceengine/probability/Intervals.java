@@ -0,0 +1,209 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of results, kept as sorted, disjoint and non-adjacent closed intervals. Unbounded intervals end at
+ * {@link Long#MIN_VALUE} or {@link Long#MAX_VALUE}.
+ * <p>
+ * Combining sets merges their interval lists in a single pass, so even deeply nested combinations are answered by one
+ * range lookup per resulting interval.
+ */
+public final class Intervals implements ResultFilter {
+
+    private static final Intervals NONE = new Intervals(new long[0]);
+
+    private static final Intervals ALL = new Intervals(new long[] {Long.MIN_VALUE, Long.MAX_VALUE});
+
+    // lower and upper bound of each interval, one after another
+    private final long[] bounds;
+
+    private Intervals(long[] bounds) {
+
+        this.bounds = bounds;
+    }
+
+    public static Intervals none() {
+
+        return NONE;
+    }
+
+    public static Intervals all() {
+
+        return ALL;
+    }
+
+    /**
+     * @return the results between both bounds, including both, which is empty if the lower bound exceeds the upper.
+     */
+    public static Intervals of(long from, long to) {
+
+        return from > to ? NONE : new Intervals(new long[] {from, to});
+    }
+
+    /**
+     * @return exactly the given results.
+     */
+    public static Intervals of(int... values) {
+
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long[] bounds = new long[2 * sorted.length];
+        int size = 0;
+        for (int value : sorted) {
+            if (size > 0 && value <= bounds[size - 1] + 1) {
+                bounds[size - 1] = Math.max(bounds[size - 1], value);
+            } else {
+                bounds[size++] = value;
+                bounds[size++] = value;
+            }
+        }
+        return new Intervals(Arrays.copyOf(bounds, size));
+    }
+
+    @Override
+    public Intervals intervals() {
+
+        return this;
+    }
+
+    public int size() {
+
+        return bounds.length / 2;
+    }
+
+    public boolean isEmpty() {
+
+        return bounds.length == 0;
+    }
+
+    public long lowerBound(int interval) {
+
+        return bounds[2 * interval];
+    }
+
+    public long upperBound(int interval) {
+
+        return bounds[2 * interval + 1];
+    }
+
+    public boolean contains(long result) {
+
+        // the index of the first bound beyond the result is odd if and only if it closes an interval
+        int index = Arrays.binarySearch(bounds, result);
+        return index >= 0 || (-index - 1) % 2 == 1;
+    }
+
+    /**
+     * @return the results of any of both sets.
+     */
+    public Intervals union(Intervals other) {
+
+        long[] merged = new long[bounds.length + other.bounds.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length || j < other.bounds.length) {
+            long[] next;
+            int index;
+            if (j >= other.bounds.length || i < bounds.length && bounds[i] <= other.bounds[j]) {
+                next = bounds;
+                index = i;
+                i += 2;
+            } else {
+                next = other.bounds;
+                index = j;
+                j += 2;
+            }
+            // intervals overlapping or adjacent to the last one are joined
+            if (size > 0 && (merged[size - 1] == Long.MAX_VALUE || next[index] <= merged[size - 1] + 1)) {
+                merged[size - 1] = Math.max(merged[size - 1], next[index + 1]);
+            } else {
+                merged[size++] = next[index];
+                merged[size++] = next[index + 1];
+            }
+        }
+        return new Intervals(Arrays.copyOf(merged, size));
+    }
+
+    /**
+     * @return the results of both sets.
+     */
+    public Intervals intersection(Intervals other) {
+
+        long[] intersected = new long[bounds.length + other.bounds.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < bounds.length && j < other.bounds.length) {
+            long from = Math.max(bounds[i], other.bounds[j]);
+            long to = Math.min(bounds[i + 1], other.bounds[j + 1]);
+            if (from <= to) {
+                intersected[size++] = from;
+                intersected[size++] = to;
+            }
+            // the interval ending first cannot intersect any further interval of the other set
+            if (bounds[i + 1] < other.bounds[j + 1]) {
+                i += 2;
+            } else {
+                j += 2;
+            }
+        }
+        return new Intervals(Arrays.copyOf(intersected, size));
+    }
+
+    /**
+     * @return all results not contained in this set.
+     */
+    public Intervals complement() {
+
+        long[] gaps = new long[bounds.length + 2];
+        int size = 0;
+        long from = Long.MIN_VALUE;
+        boolean unbounded = true;
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (bounds[i] > from || bounds[i] == Long.MIN_VALUE && !unbounded) {
+                gaps[size++] = from;
+                gaps[size++] = bounds[i] - 1;
+            }
+            if (bounds[i + 1] == Long.MAX_VALUE) {
+                return new Intervals(Arrays.copyOf(gaps, size));
+            }
+            from = bounds[i + 1] + 1;
+            unbounded = false;
+        }
+        gaps[size++] = from;
+        gaps[size++] = Long.MAX_VALUE;
+        return new Intervals(Arrays.copyOf(gaps, size));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+
+        return other instanceof Intervals && Arrays.equals(bounds, ((Intervals) other).bounds);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Arrays.hashCode(bounds);
+    }
+
+    @Override
+    public String toString() {
+
+        if (bounds.length == 0) {
+            return "{}";
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < bounds.length; i += 2) {
+            text.append(text.length() == 0 ? "" : " | ")
+                .append('[')
+                .append(bounds[i] == Long.MIN_VALUE ? "-inf" : String.valueOf(bounds[i]))
+                .append(", ")
+                .append(bounds[i + 1] == Long.MAX_VALUE ? "inf" : String.valueOf(bounds[i + 1]))
+                .append(']');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,339 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.RandomInt;
+
+/**
+ * Estimates probabilities by rolling the dice on many threads, for pools whose exact distribution is too expensive.
+ * <p>
+ * Every worker rolls with its own random source, split from one master generator, into its own histogram. Histograms
+ * count buckets of results between the bounds of all categories rather than single results, so their size depends on
+ * the categories only, not on the number of possible results of the pool. After each round the histograms are merged
+ * and the Wilson score interval of every category is checked. Estimation stops once
+ * all intervals are narrow enough, the time budget is spent or the maximal number of samples is reached. With a seed
+ * and without reaching the time budget, estimates are reproducible for the same number of workers.
+ */
+public class MonteCarloEstimator {
+
+    private static final int ROUND_SIZE = 1 << 14;
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1 << 10;
+
+    private final int workers;
+
+    private final double targetWidth;
+
+    private final Duration timeBudget;
+
+    private final long maxSamples;
+
+    private final double z;
+
+    private final Long seed;
+
+    private final ForkJoinPool forkJoinPool;
+
+    private MonteCarloEstimator(EstimatorDefinition definition) {
+
+        this.workers = definition.workers;
+        this.targetWidth = definition.targetWidth;
+        this.timeBudget = definition.timeBudget;
+        this.maxSamples = definition.maxSamples;
+        this.z = NormalDistribution.quantile(0.5 + definition.confidence / 2);
+        this.seed = definition.seed;
+        this.forkJoinPool = definition.forkJoinPool;
+    }
+
+    public static EstimatorDefinition define() {
+
+        return new EstimatorDefinition();
+    }
+
+    public Estimate estimate(ResultFilter cat, Dice... dice) {
+
+        return estimates(List.of(cat), dice)[0];
+    }
+
+    /**
+     * Estimates all categories from the same samples, until the intervals of all categories are narrow enough.
+     *
+     * @return the estimate of each category, in the order of the given categories.
+     */
+    public Estimate[] estimates(List<? extends ResultFilter> categories, Dice... dice) {
+
+        Estimate[] estimates = new Estimate[categories.size()];
+        if (dice.length == 0) {
+            Arrays.fill(estimates, new Estimate(0.0, 0.0, 0));
+            return estimates;
+        }
+
+        long minimum = 0;
+        long maximum = 0;
+        for (Dice d : dice) {
+            minimum += d.minimum();
+            maximum += d.maximum();
+        }
+        long[] cuts = cuts(categories, minimum, maximum);
+
+        SplittableRandom master = seed == null ? new SplittableRandom() : new SplittableRandom(seed);
+        List<Worker> pool = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            pool.add(new Worker(dice, RandomInt.of(master.split()), cuts));
+        }
+
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+        long[] histogram = new long[cuts.length + 1];
+        long samples = 0;
+        boolean done = false;
+        while (!done) {
+            long remaining = maxSamples - samples;
+            List<ForkJoinTask<Long>> round = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                // the remaining samples are split evenly, the first workers take the remainder
+                long share = Math.min(ROUND_SIZE, remaining / workers + (w < remaining % workers ? 1 : 0));
+                Worker worker = pool.get(w);
+                round.add(forkJoinPool.submit(() -> worker.roll((int) share, deadline)));
+            }
+            for (ForkJoinTask<Long> result : round) {
+                samples += result.join();
+            }
+            for (Worker worker : pool) {
+                worker.drainInto(histogram);
+            }
+
+            long[] cumulative = cumulative(histogram);
+            double widest = 0.0;
+            for (int i = 0; i < estimates.length; i++) {
+                estimates[i] = estimate(categories.get(i), cumulative, cuts, minimum, maximum, samples);
+                widest = Math.max(widest, estimates[i].errorBound());
+            }
+            done = samples > 0 && widest <= targetWidth || samples >= maxSamples || System.nanoTime() >= deadline;
+        }
+        return estimates;
+    }
+
+    /**
+     * @return the sorted first results of all buckets but the first one, i.e. the lower bounds and the successors of
+     * the upper bounds of all intervals of all categories within the possible results.
+     */
+    private static long[] cuts(List<? extends ResultFilter> categories, long minimum, long maximum) {
+
+        TreeSet<Long> cuts = new TreeSet<>();
+        for (ResultFilter cat : categories) {
+            Intervals intervals = cat.intervals();
+            for (int i = 0; i < intervals.size(); i++) {
+                long from = intervals.lowerBound(i);
+                long to = intervals.upperBound(i);
+                if (from > minimum && from <= maximum) {
+                    cuts.add(from);
+                }
+                if (to >= minimum && to < maximum) {
+                    cuts.add(to + 1);
+                }
+            }
+        }
+        return cuts.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * @return the index of the bucket of the given result, which is the number of cuts up to the result.
+     */
+    private static int bucket(long[] cuts, long result) {
+
+        int index = Arrays.binarySearch(cuts, result);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private Estimate estimate(
+        ResultFilter cat, long[] cumulative, long[] cuts, long minimum, long maximum, long samples) {
+
+        if (samples == 0) {
+            return new Estimate(0.0, 1.0, 0);
+        }
+        Intervals intervals = cat.intervals();
+        long hits = 0;
+        for (int i = 0; i < intervals.size(); i++) {
+            long from = Math.max(intervals.lowerBound(i), minimum);
+            long to = Math.min(intervals.upperBound(i), maximum);
+            if (from <= to) {
+                // both bounds are cuts, so the interval covers whole buckets
+                int first = bucket(cuts, from);
+                int last = bucket(cuts, to);
+                hits += cumulative[last] - (first == 0 ? 0 : cumulative[first - 1]);
+            }
+        }
+
+        double p = hits / (double) samples;
+        double zSquaredPerSample = z * z / samples;
+        double halfWidth = z / (1 + zSquaredPerSample)
+            * Math.sqrt(p * (1 - p) / samples + zSquaredPerSample / (4.0 * samples));
+        return new Estimate(p, halfWidth, samples);
+    }
+
+    private static long[] cumulative(long[] histogram) {
+
+        long[] cumulative = new long[histogram.length];
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += histogram[i];
+            cumulative[i] = sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * @param probability the share of samples matching the category
+     * @param errorBound half width of the confidence interval around the probability
+     * @param samples number of rolls the estimate is based on
+     */
+    public record Estimate(double probability, double errorBound, long samples) {
+    }
+
+    private static class Worker {
+
+        private final Dice[] dice;
+
+        private final long[] cuts;
+
+        private final long[] histogram;
+
+        private final int[] results = new int[DEADLINE_CHECK_INTERVAL];
+
+        private final long[] sums = new long[DEADLINE_CHECK_INTERVAL];
+
+        Worker(Dice[] dice, RandomInt rnd, long[] cuts) {
+
+            this.dice = new Dice[dice.length];
+            for (int i = 0; i < dice.length; i++) {
+                this.dice[i] = dice[i].withRandom(rnd);
+            }
+            this.cuts = cuts;
+            this.histogram = new long[cuts.length + 1];
+        }
+
+        long roll(int samples, long deadline) {
+
+            int rolled = 0;
+            while (rolled < samples && System.nanoTime() < deadline) {
+                int batch = Math.min(DEADLINE_CHECK_INTERVAL, samples - rolled);
+                Arrays.fill(sums, 0, batch, 0);
+                for (Dice d : dice) {
+                    d.throwDice(results, 0, batch);
+                    for (int i = 0; i < batch; i++) {
+                        sums[i] += results[i];
+                    }
+                }
+                for (int i = 0; i < batch; i++) {
+                    histogram[bucket(cuts, sums[i])]++;
+                }
+                rolled += batch;
+            }
+            return rolled;
+        }
+
+        void drainInto(long[] target) {
+
+            for (int i = 0; i < histogram.length; i++) {
+                target[i] += histogram[i];
+            }
+            Arrays.fill(histogram, 0);
+        }
+    }
+
+    public static class EstimatorDefinition {
+
+        private int workers = Runtime.getRuntime().availableProcessors();
+        private double targetWidth = 0.001;
+        private Duration timeBudget = Duration.ofSeconds(10);
+        private long maxSamples = Long.MAX_VALUE;
+        private double confidence = 0.95;
+        private Long seed;
+        private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+        private EstimatorDefinition() {
+        }
+
+        public EstimatorDefinition withWorkers(int workers) {
+
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * @param targetWidth half width of the confidence interval at which estimation stops
+         */
+        public EstimatorDefinition withTargetWidth(double targetWidth) {
+
+            this.targetWidth = targetWidth;
+            return this;
+        }
+
+        /**
+         * @param timeBudget wall-clock time after which estimation stops, regardless of the reached width
+         */
+        public EstimatorDefinition withTimeBudget(Duration timeBudget) {
+
+            this.timeBudget = timeBudget;
+            return this;
+        }
+
+        public EstimatorDefinition withMaxSamples(long maxSamples) {
+
+            this.maxSamples = maxSamples;
+            return this;
+        }
+
+        /**
+         * @param confidence level of the confidence intervals, e.g. 0.95
+         */
+        public EstimatorDefinition withConfidence(double confidence) {
+
+            this.confidence = confidence;
+            return this;
+        }
+
+        public EstimatorDefinition withSeed(long seed) {
+
+            this.seed = seed;
+            return this;
+        }
+
+        public EstimatorDefinition withForkJoinPool(ForkJoinPool forkJoinPool) {
+
+            this.forkJoinPool = forkJoinPool;
+            return this;
+        }
+
+        public MonteCarloEstimator create() {
+
+            if (workers < 1) {
+                throw new IllegalArgumentException("Number of workers must be positive. Invalid value: " + workers);
+            }
+            if (!(targetWidth >= 0.0)) {
+                throw new IllegalArgumentException("Target width cannot be negative. Invalid value: " + targetWidth);
+            }
+            if (timeBudget == null || timeBudget.isNegative()) {
+                throw new IllegalArgumentException("Time budget must be defined and cannot be negative.");
+            }
+            if (maxSamples < 1) {
+                throw new IllegalArgumentException("Maximal samples must be positive. Invalid value: " + maxSamples);
+            }
+            if (!(confidence > 0.0 && confidence < 1.0)) {
+                throw new IllegalArgumentException("Confidence must be between zero and one. Invalid value: " + confidence);
+            }
+            if (forkJoinPool == null) {
+                throw new IllegalArgumentException("Fork join pool must be defined.");
+            }
+            return new MonteCarloEstimator(this);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.inovex.cleancode.diceengine.probability;
+
+/**
+ * Functions of the standard normal distribution.
+ */
+final class NormalDistribution {
+
+    private static final double INVERSE_SQRT_TWO_PI = 1 / Math.sqrt(2 * Math.PI);
+
+    private NormalDistribution() {
+    }
+
+    static double density(double x) {
+
+        return INVERSE_SQRT_TWO_PI * Math.exp(-0.5 * x * x);
+    }
+
+    /**
+     * @return the probability of a standard normal result of at most the given value, with an absolute error below
+     * 1e-15.
+     */
+    static double cdf(double x) {
+
+        return x < 0 ? upperTail(-x) : 1.0 - upperTail(x);
+    }
+
+    /**
+     * @return the probability of a standard normal result above the given value, with a relative error below 1e-9.
+     */
+    static double upperTail(double x) {
+
+        if (x < 0) {
+            return 1.0 - upperTail(-x);
+        }
+        if (x < 5) {
+            // Marsaglia's Taylor series of the integral from zero up to x
+            double term = x;
+            double sum = x;
+            double square = x * x;
+            for (int i = 3; sum + term != sum; i += 2) {
+                term *= square / i;
+                sum += term;
+            }
+            return 0.5 - density(x) * sum;
+        }
+        if (x > 38) {
+            return 0.0;
+        }
+        // continued fraction of the Mills ratio, which converges quickly in the tail
+        double fraction = x;
+        for (int k = 60; k > 0; k--) {
+            fraction = x + k / fraction;
+        }
+        return density(x) / fraction;
+    }
+
+    /**
+     * Acklam's rational approximation, with a relative error below 1.2e-9.
+     *
+     * @param p probability strictly between zero and one
+     * @return the value below which a standard normal result falls with the given probability.
+     */
+    static double quantile(double p) {
+
+        if (!(p > 0.0 && p < 1.0)) {
+            throw new IllegalArgumentException("Probability must be between zero and one (excl). Invalid value: " + p);
+        }
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return tail(q);
+        }
+        if (p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(1 - p));
+            return -tail(q);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+            + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+            / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+            + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+
+    private static double tail(double q) {
+
+        return (((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+            - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+            / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+            + 3.754408661907416e+00) * q + 1);
+    }
+}
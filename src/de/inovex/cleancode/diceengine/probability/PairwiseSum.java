@@ -0,0 +1,61 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.IntFunction;
+
+/**
+ * Sums up partial distributions along a balanced tree. Both halves of every node are computed concurrently when run
+ * in a {@link java.util.concurrent.ForkJoinPool}, and after each other when {@link #sequentially()} is called.
+ */
+@SuppressWarnings("serial") // tasks are never serialized, neither are their functions
+class PairwiseSum<T> extends RecursiveTask<T> {
+
+    private final IntFunction<T> leaf;
+
+    private final BinaryOperator<T> add;
+
+    private final int from;
+
+    private final int to;
+
+    /**
+     * @param leaf computes the partial distribution of the given index
+     * @param add sums up two partial distributions
+     * @param size number of partial distributions, at least one
+     */
+    PairwiseSum(IntFunction<T> leaf, BinaryOperator<T> add, int size) {
+
+        this(leaf, add, 0, size);
+    }
+
+    private PairwiseSum(IntFunction<T> leaf, BinaryOperator<T> add, int from, int to) {
+
+        this.leaf = leaf;
+        this.add = add;
+        this.from = from;
+        this.to = to;
+    }
+
+    T sequentially() {
+
+        T sum = leaf.apply(from);
+        for (int i = from + 1; i < to; i++) {
+            sum = add.apply(sum, leaf.apply(i));
+        }
+        return sum;
+    }
+
+    @Override
+    protected T compute() {
+
+        if (to - from == 1) {
+            return leaf.apply(from);
+        }
+        int middle = (from + to) >>> 1;
+        PairwiseSum<T> left = new PairwiseSum<>(leaf, add, from, middle);
+        left.fork();
+        T right = new PairwiseSum<>(leaf, add, middle, to).compute();
+        return add.apply(left.join(), right);
+    }
+}
@@ -1,8 +1,6 @@
 package de.inovex.cleancode.diceengine.probability;
 
-import java.util.function.BiFunction;
-
-public record ResultCategory(int value, Operator operator) {
+public record ResultCategory(int value, Operator operator) implements ResultFilter {
 
     public static enum Operator {
 
@@ -38,4 +36,49 @@ public record ResultCategory(int value, Operator operator) {
         return new ResultCategory(value, Operator.GREATER_OR_EQUAL);
     }
 
+    /**
+     * @return the results between both values, including both.
+     */
+    public static Intervals between(int from, int to) {
+
+        return Intervals.of(from, to);
+    }
+
+    /**
+     * @return exactly the given results.
+     */
+    public static Intervals in(int... values) {
+
+        return Intervals.of(values);
+    }
+
+    /**
+     * @return the smallest result of this category, which is {@link Long#MIN_VALUE} if unbounded.
+     */
+    public long lowerBound() {
+
+        return switch (operator) {
+            case EQUAL, GREATER_OR_EQUAL -> value;
+            case GREATER -> value + 1L;
+            case LESS, LESS_OR_EQUAL -> Long.MIN_VALUE;
+        };
+    }
+
+    /**
+     * @return the largest result of this category, which is {@link Long#MAX_VALUE} if unbounded.
+     */
+    public long upperBound() {
+
+        return switch (operator) {
+            case EQUAL, LESS_OR_EQUAL -> value;
+            case LESS -> value - 1L;
+            case GREATER, GREATER_OR_EQUAL -> Long.MAX_VALUE;
+        };
+    }
+
+    @Override
+    public Intervals intervals() {
+
+        return Intervals.of(lowerBound(), upperBound());
+    }
 }
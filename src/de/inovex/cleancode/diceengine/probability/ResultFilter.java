@@ -0,0 +1,26 @@
+package de.inovex.cleancode.diceengine.probability;
+
+/**
+ * Set of results whose probability is calculated. Filters are combined by {@link #and}, {@link #or} and {@link #not}
+ * and compile to sorted {@link Intervals}, so their probability needs a single distribution and one range lookup per
+ * interval, no matter how they were combined.
+ */
+public interface ResultFilter {
+
+    Intervals intervals();
+
+    default ResultFilter and(ResultFilter other) {
+
+        return intervals().intersection(other.intervals());
+    }
+
+    default ResultFilter or(ResultFilter other) {
+
+        return intervals().union(other.intervals());
+    }
+
+    default ResultFilter not() {
+
+        return intervals().complement();
+    }
+}
@@ -1,106 +1,624 @@
 package de.inovex.cleancode.diceengine.probability;
 
-import static java.util.Collections.emptyList;
-import static java.util.Comparator.comparing;
-
-
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.function.Predicate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
 
+import de.inovex.cleancode.diceengine.Convolution;
 import de.inovex.cleancode.diceengine.Dice;
-import de.inovex.cleancode.diceengine.Result;
+import de.inovex.cleancode.diceengine.DiceExpression;
+import de.inovex.cleancode.diceengine.DicePool;
+import de.inovex.cleancode.diceengine.Distribution;
+import de.inovex.cleancode.diceengine.EngineMetrics;
+import de.inovex.cleancode.diceengine.LruCache;
 
 public class ResultProbabilityCalculator {
 
-    public double probability(ResultCategory cat, Dice... dice) {
+    // counts beyond the long range cost BigInteger arithmetic in their number times their bits, which is kept within
+    // about 2^20, e.g. 200d6 or 100d20, beyond that probabilities are approximated
+    private static final double MAX_EXACT_COST = 1 << 20;
 
-        final int v = cat.value();
-        final Predicate<Integer> filter = switch (cat.operator()) {
-            case EQUAL -> r -> r == v;
-            case LESS -> r -> r < v;
-            case LESS_OR_EQUAL -> r -> r <= v;
-            case GREATER -> r -> r > v;
-            case GREATER_OR_EQUAL -> r -> r >= v;
-        };
+    private static final int DEFAULT_CACHE_CAPACITY = 1024;
 
-        double probability = 0.0;
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 14;
+
+    // pools of up to 2^20 possible results are convolved by FFT in some ten megabytes and milliseconds
+    private static final long DEFAULT_MAX_CONVOLUTION_SIZE = 1 << 20;
+
+    // the documented errors of analytic approximations hold from 100 dice on, e.g. below 1e-6 for 100d6 by Edgeworth
+    private static final double MIN_ANALYTIC_DICE = 100;
+
+    private static final Comparator<Dice.Key> KEY_ORDER = Comparator.comparingInt(Dice.Key::sides)
+        .thenComparingInt(Dice.Key::dice)
+        .thenComparingInt(Dice.Key::keep)
+        .thenComparing(Dice.Key::keepLowest)
+        .thenComparingInt(Dice.Key::rerollAtMost)
+        .thenComparingInt(Dice.Key::explosions);
+
+    private final LruCache<PoolKey, Distribution> distributions;
+
+    private final int parallelThreshold;
+
+    private final ForkJoinPool forkJoinPool;
+
+    private final MonteCarloEstimator estimator;
+
+    private final Approximation approximation;
+
+    private final long analyticThreshold;
+
+    private final long maxConvolutionSize;
+
+    /**
+     * Analytic approximations of pools which are too large for exact counts but have enough dice for a small error, or
+     * of pools whose number of possible results reaches the analytic threshold.
+     */
+    public enum Approximation {
+
+        /**
+         * Continuity-corrected normal distribution, by mean and variance of the pool.
+         */
+        NORMAL,
+        /**
+         * Edgeworth expansion, which corrects the normal distribution by skewness and kurtosis of the pool.
+         */
+        EDGEWORTH;
+    }
+
+    public ResultProbabilityCalculator() {
+
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param cacheCapacity maximal number of dice pools whose distributions are kept for further queries
+     */
+    public ResultProbabilityCalculator(int cacheCapacity) {
+
+        this(cacheCapacity, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool(), null, Approximation.EDGEWORTH,
+            Long.MAX_VALUE, DEFAULT_MAX_CONVOLUTION_SIZE);
+    }
+
+    private ResultProbabilityCalculator(
+        int cacheCapacity, int parallelThreshold, ForkJoinPool forkJoinPool, MonteCarloEstimator estimator,
+        Approximation approximation, long analyticThreshold, long maxConvolutionSize) {
+
+        this.distributions = new LruCache<>(cacheCapacity);
+        this.parallelThreshold = parallelThreshold;
+        this.forkJoinPool = forkJoinPool;
+        this.estimator = estimator;
+        this.approximation = approximation;
+        this.analyticThreshold = analyticThreshold;
+        this.maxConvolutionSize = maxConvolutionSize;
+    }
+
+    public static CalculatorDefinition define() {
+
+        return new CalculatorDefinition();
+    }
+
+    public LruCache.Statistics cacheStatistics() {
+
+        return distributions.statistics();
+    }
+
+    public double probability(ResultFilter cat, Dice... dice) {
+
+        return probabilities(List.of(cat), dice)[0];
+    }
+
+    public double probability(ResultFilter cat, DicePool pool) {
+
+        return probabilities(List.of(cat), pool)[0];
+    }
+
+    public double probability(ResultFilter cat, DiceExpression expression) {
+
+        return probabilities(List.of(cat), expression.dice())[0];
+    }
+
+    public double[] probabilities(List<? extends ResultFilter> categories, DiceExpression expression) {
+
+        return probabilities(categories, expression.dice());
+    }
+
+    /**
+     * Answers all categories by the current distribution of the pool, without any further computation.
+     *
+     * @return the probability of each category, in the order of the given categories.
+     */
+    public double[] probabilities(List<? extends ResultFilter> categories, DicePool pool) {
+
+        if (!EngineMetrics.isQueryMeasured()) {
+            return calculate(categories, pool);
+        }
+        return EngineMetrics.measureQuery(pool.dice(), categories.size(), () -> calculate(categories, pool));
+    }
+
+    private double[] calculate(List<? extends ResultFilter> categories, DicePool pool) {
+
+        double[] probabilities = new double[categories.size()];
+        if (!pool.isEmpty()) {
+            for (int i = 0; i < probabilities.length; i++) {
+                probabilities[i] = probability(categories.get(i), pool.distribution(), 0);
+            }
+        }
+        return probabilities;
+    }
+
+    /**
+     * Answers all categories by a single distribution of the given dice. Pools which are too large for exact counts
+     * are approximated by their cumulants instead if they have at least 100 effective dice, e.g. 1000d20, and by the
+     * Monte Carlo estimator or by FFT otherwise. Pools reaching the analytic threshold are always approximated by their
+     * cumulants.
+     *
+     * @return the probability of each category, in the order of the given categories.
+     * @throws IllegalArgumentException if the pool has more possible results than the maximal convolution size but
+     * too few dice for an analytic approximation, and no Monte Carlo estimator is defined
+     */
+    public double[] probabilities(List<? extends ResultFilter> categories, Dice... dice) {
+
+        if (!EngineMetrics.isQueryMeasured()) {
+            return calculate(categories, dice);
+        }
+        return EngineMetrics.measureQuery(Arrays.asList(dice), categories.size(), () -> calculate(categories, dice));
+    }
+
+    private double[] calculate(List<? extends ResultFilter> categories, Dice... dice) {
+
+        double[] probabilities = new double[categories.size()];
         if (dice.length == 0) {
-            return probability;
-        }
-
-        List<Result> distribution = emptyList();
-        if (dice.length == 1) {
-            distribution = dice[0].resultDistribution();
-        } else {
-
-            // collect all possible sums of all rolls
-          List<Result> allResultSums = new ArrayList<>();
-            int[] indices = new int[dice.length];
-            Arrays.fill(indices, 0);
-            List<Result[]> diceDistributions = Arrays.stream(dice)
-                .map(Dice::resultDistribution)
-                .map(list -> list.toArray(new Result[0]))
-                .toList();
-            boolean overflow = false;
-            while (!overflow) {
-                int x = 0;
-                int r = 0;
-                int c = 1;
-                int o = 1;
-                for(Result[] results: diceDistributions) {
-                    int index = indices[x++];
-                    Result current = results[index];
-                    r += current.result();
-                    c *= current.count();
-                    o *= current.overall();
+            return probabilities;
+        }
+        if (dice.length == 1 && isExact(bits(dice[0]), (long) dice[0].maximum() - dice[0].minimum() + 1)) {
+            // a single dice keeps its distribution, including the modifier
+            Distribution distribution = dice[0].distribution();
+            for (int i = 0; i < probabilities.length; i++) {
+                probabilities[i] = probability(categories.get(i), distribution, 0);
+            }
+            return probabilities;
+        }
+
+        long minimum = 0;
+        long maximum = 0;
+        long mod = 0;
+        double bits = 0;
+        for (Dice d : dice) {
+            minimum += d.minimum();
+            maximum += d.maximum();
+            mod += d.mod();
+            bits += bits(d);
+        }
+        boolean exact = isExact(bits, maximum - minimum + 1);
+        boolean requested = maximum - minimum >= analyticThreshold;
+        if (requested || !exact && estimator == null) {
+            AnalyticApproximation analytic = AnalyticApproximation.of(approximation == Approximation.EDGEWORTH, dice);
+            if (requested || analytic.effectiveDice() >= MIN_ANALYTIC_DICE) {
+                for (int i = 0; i < probabilities.length; i++) {
+                    probabilities[i] = probability(categories.get(i), analytic);
                 }
-                allResultSums.add(new Result(r, c, o));
-
-                overflow = true;
-                for(int i = dice.length - 1; i >= 0 && overflow; i--) {
-                    if (indices[i] == diceDistributions.get(i).length - 1) {
-                        indices[i] = 0;
-                    } else {
-                        indices[i]++;
-                        overflow = false;
-                    }
+                return probabilities;
+            }
+        }
+        List<Dice.Key> groups = groups(Arrays.asList(dice));
+
+        if (exact) {
+            try {
+                Distribution distribution = exactDistribution(groups);
+                for (int i = 0; i < probabilities.length; i++) {
+                    probabilities[i] = probability(categories.get(i), distribution, mod);
                 }
+                return probabilities;
+
+            } catch (ArithmeticException e) {
+                // results exceed the int range, continue with approximate probabilities
+            }
+        }
+
+        if (estimator != null) {
+            MonteCarloEstimator.Estimate[] estimates = estimator.estimates(categories, dice);
+            for (int i = 0; i < probabilities.length; i++) {
+                probabilities[i] = estimates[i].probability();
+            }
+            return probabilities;
+        }
+
+        checkConvolutionSize(maximum - minimum + 1);
+        double[] cumulative = approximateCumulativeProbabilities(groups);
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] = probability(categories.get(i), cumulative, minimum);
+        }
+        return probabilities;
+    }
+
+    private void checkConvolutionSize(long results) {
+
+        if (results > maxConvolutionSize) {
+            throw new IllegalArgumentException("Pool has too many possible results to be convolved and too few dice "
+                + "to be approximated analytically, define a Monte Carlo estimator. Invalid number of results: "
+                + results);
+        }
+    }
+
+    /**
+     * @return the win, tie and loss probabilities of the sum of the attacking dice against the sum of the defending
+     * dice.
+     * @throws IllegalArgumentException if a side is too large for exact counts and has more possible results than the
+     * maximal convolution size
+     */
+    public Contest contest(List<Dice> attacker, List<Dice> defender) {
+
+        return contest(cumulativeProbabilities(attacker), cumulativeProbabilities(defender));
+    }
+
+    public Contest contest(DicePool attacker, DicePool defender) {
+
+        return contest(cumulativeProbabilities(attacker), cumulativeProbabilities(defender));
+    }
+
+    /**
+     * Contests a single attacker against each defender, the distribution of the attacker is computed only once.
+     *
+     * @return the contest against each defender, in the order of the given defenders.
+     */
+    public Contest[] contests(List<Dice> attacker, List<List<Dice>> defenders) {
+
+        Cumulative attacking = cumulativeProbabilities(attacker);
+        Contest[] contests = new Contest[defenders.size()];
+        for (int i = 0; i < contests.length; i++) {
+            contests[i] = contest(attacking, cumulativeProbabilities(defenders.get(i)));
+        }
+        return contests;
+    }
+
+    public Contest[] contests(DicePool attacker, List<DicePool> defenders) {
+
+        Cumulative attacking = cumulativeProbabilities(attacker);
+        Contest[] contests = new Contest[defenders.size()];
+        for (int i = 0; i < contests.length; i++) {
+            contests[i] = contest(attacking, cumulativeProbabilities(defenders.get(i)));
+        }
+        return contests;
+    }
+
+    /**
+     * Sweeps once over the results of the attacker, each of them is compared to the defender by two lookups of its
+     * cumulative probabilities.
+     */
+    private static Contest contest(Cumulative attacker, Cumulative defender) {
+
+        double win = 0.0;
+        double tie = 0.0;
+        double loss = 0.0;
+        double[] cumulative = attacker.probabilities();
+        for (int i = 0; i < cumulative.length; i++) {
+            double probability = cumulative[i] - (i == 0 ? 0.0 : cumulative[i - 1]);
+            if (probability > 0.0) {
+                long result = attacker.minimum() + i;
+                double below = defender.atMost(result - 1);
+                double atMost = defender.atMost(result);
+                win += probability * below;
+                tie += probability * (atMost - below);
+                loss += probability * (1.0 - atMost);
+            }
+        }
+        return new Contest(Math.min(win, 1.0), Math.min(tie, 1.0), Math.min(loss, 1.0));
+    }
+
+    private Cumulative cumulativeProbabilities(DicePool pool) {
+
+        if (pool.isEmpty()) {
+            return new Cumulative(0, new double[] {1.0});
+        }
+        Distribution distribution = pool.distribution();
+        return new Cumulative(distribution.minimum(), cumulate(distribution.probabilities()));
+    }
+
+    private Cumulative cumulativeProbabilities(List<Dice> dice) {
+
+        if (dice.isEmpty()) {
+            return new Cumulative(0, new double[] {1.0});
+        }
+        long minimum = 0;
+        long maximum = 0;
+        long mod = 0;
+        double bits = 0;
+        for (Dice d : dice) {
+            minimum += d.minimum();
+            maximum += d.maximum();
+            mod += d.mod();
+            bits += bits(d);
+        }
+        List<Dice.Key> groups = groups(dice);
+
+        if (isExact(bits, maximum - minimum + 1)) {
+            try {
+                Distribution distribution = exactDistribution(groups);
+                return new Cumulative(distribution.minimum() + mod, cumulate(distribution.probabilities()));
+
+            } catch (ArithmeticException e) {
+                // results exceed the int range, continue with approximate probabilities
             }
+        }
+        checkConvolutionSize(maximum - minimum + 1);
+        return new Cumulative(minimum, approximateCumulativeProbabilities(groups));
+    }
 
-            // sum up items with same result value
-            distribution = new ArrayList<>();
-            Collections.sort(allResultSums, comparing(Result::result));
-            Result current = null;
-            for(Result result: allResultSums) {
-                if (current == null) {
-                    current = result;
+    /**
+     * Dice of equal sides are merged, so that their sum is computed by repeated squaring. All other dice follow in
+     * {@link #KEY_ORDER}, modifiers are dropped.
+     */
+    private static List<Dice.Key> groups(List<Dice> dice) {
+
+        Map<Integer, List<Integer>> diceBySides = new TreeMap<>();
+        List<Dice.Key> otherDice = new ArrayList<>();
+        for (Dice d : dice) {
+            Dice.Key key = new Dice.Key(
+                d.sides(), d.dice(), 0, d.keep(), d.keepsLowest(), d.rerollAtMost(), d.explosions());
+            if (key.isUniformSum()) {
+                // counts exceeding the int range of a single group are kept in a further group of equal sides
+                List<Integer> counts = diceBySides.computeIfAbsent(d.sides(), sides -> new ArrayList<>());
+                int last = counts.size() - 1;
+                if (last >= 0 && (long) counts.get(last) + d.dice() <= Integer.MAX_VALUE) {
+                    counts.set(last, counts.get(last) + d.dice());
                 } else {
-                    if (current.result() == result.result()) {
-                        current = new Result(current.result(), current.count() + result.count(), current.overall());
-                    } else {
-                        distribution.add(current);
-                        current = result;
-                    }
+                    counts.add(d.dice());
                 }
+            } else {
+                otherDice.add(key);
             }
-            if (current != null) {
-                distribution.add(current);
+        }
+        List<Dice.Key> groups = new ArrayList<>();
+        diceBySides.forEach((sides, counts) -> counts.forEach(count -> groups.add(new Dice.Key(sides, count, 0))));
+        otherDice.sort(KEY_ORDER);
+        groups.addAll(otherDice);
+        return groups;
+    }
+
+    /**
+     * @return the binary logarithm of the overall count of the given dice.
+     */
+    private static double bits(Dice d) {
+
+        // every reroll and explosion multiplies the number of combinations of a dice by its sides
+        int rolls = (d.rerollAtMost() > 0 ? 2 : 1) * (d.explosions() + 1);
+        return d.dice() * rolls * Math.log(d.sides()) / Math.log(2);
+    }
+
+    /**
+     * @return whether exact counts of the given bits are cheap for the given number of results, which holds for all
+     * counts in the {@code long} range.
+     */
+    private static boolean isExact(double bits, long results) {
+
+        return bits < Long.SIZE - 1 || bits * results <= MAX_EXACT_COST;
+    }
+
+    private Distribution exactDistribution(List<Dice.Key> groups) {
+
+        return distributions.get(
+            new PoolKey(groups), key -> sum(key.groups(), Dice::distribution, Distribution::add));
+    }
+
+    private double probability(ResultFilter cat, Distribution distribution, long mod) {
+
+        Intervals intervals = cat.intervals();
+        double probability = 0.0;
+        for (int i = 0; i < intervals.size(); i++) {
+            // the modifier is subtracted from the category instead of shifting the whole distribution
+            long from = Math.max(saturatedSubtract(intervals.lowerBound(i), mod), distribution.minimum());
+            long to = Math.min(saturatedSubtract(intervals.upperBound(i), mod), distribution.maximum());
+            if (from <= to) {
+                probability += distribution.probabilityBetween((int) from, (int) to);
             }
         }
+        return Math.min(probability, 1.0);
+    }
+
+    private double[] approximateCumulativeProbabilities(List<Dice.Key> groups) {
+
+        return cumulate(sum(groups, this::approximateProbabilities, Convolution::convolve));
+    }
+
+    private static double[] cumulate(double[] probabilities) {
+
+        double sum = 0.0;
+        for (int i = 0; i < probabilities.length; i++) {
+            sum += probabilities[i];
+            probabilities[i] = Math.min(sum, 1.0);
+        }
+        return probabilities;
+    }
+
+    private double probability(ResultFilter cat, double[] cumulative, long minimum) {
 
-        for (Result result : distribution) {
-            if (filter.test(result.result())) {
-                probability += result.count() / (double) result.overall();
+        Intervals intervals = cat.intervals();
+        double probability = 0.0;
+        for (int i = 0; i < intervals.size(); i++) {
+            long first = Math.max(saturatedSubtract(intervals.lowerBound(i), minimum), 0);
+            long last = Math.min(saturatedSubtract(intervals.upperBound(i), minimum), cumulative.length - 1);
+            if (first <= last) {
+                probability += Math.max(cumulative[(int) last] - (first == 0 ? 0.0 : cumulative[(int) first - 1]), 0.0);
             }
         }
+        return Math.min(probability, 1.0);
+    }
+
+    private double probability(ResultFilter cat, AnalyticApproximation analytic) {
+
+        Intervals intervals = cat.intervals();
+        double probability = 0.0;
+        for (int i = 0; i < intervals.size(); i++) {
+            probability += analytic.probabilityBetween(intervals.lowerBound(i), intervals.upperBound(i));
+        }
+        return Math.min(probability, 1.0);
+    }
+
+    private double[] approximateProbabilities(Dice.Key group) {
 
-        return probability;
+        // other dice have no direct approximation, so their probabilities are taken from their exact distribution
+        return group.isUniformSum()
+            ? Convolution.uniformSumProbabilities(group.sides(), group.dice())
+            : Dice.distribution(group).probabilities();
     }
 
+    /**
+     * Sums up the distributions of all groups of dice, concurrently if the pool has enough possible results.
+     */
+    private <T> T sum(List<Dice.Key> groups, Function<Dice.Key, T> group, BinaryOperator<T> add) {
+
+        long results = 1;
+        for (Dice.Key key : groups) {
+            results += (long) key.keep() * (key.sides() * (key.explosions() + 1L) - 1);
+        }
+
+        PairwiseSum<T> sum = new PairwiseSum<>(i -> group.apply(groups.get(i)), add, groups.size());
+        if (groups.size() > 1 && results >= parallelThreshold) {
+            return forkJoinPool.invoke(sum);
+        }
+        return sum.sequentially();
+    }
+
+    static long saturatedSubtract(long value, long subtrahend) {
+
+        long difference = value - subtrahend;
+        // overflow occurs only if both operands have different signs and the result differs from the value's sign
+        if (((value ^ subtrahend) & (value ^ difference)) < 0) {
+            return value < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+        return difference;
+    }
+
+    /**
+     * Identifies a multiset of dice by the number of dice per number of sides followed by all other dice in
+     * {@link #KEY_ORDER}, modifiers are applied afterwards.
+     */
+    private record PoolKey(List<Dice.Key> groups) {
+    }
+
+    /**
+     * @param minimum the result of the first cumulative probability
+     * @param probabilities the probability of each result at most the minimum plus its index
+     */
+    private record Cumulative(long minimum, double[] probabilities) {
+
+        double atMost(long result) {
+
+            if (result < minimum) {
+                return 0.0;
+            }
+            return result - minimum >= probabilities.length ? 1.0 : probabilities[(int) (result - minimum)];
+        }
+    }
+
+    public static class CalculatorDefinition {
+
+        private int cacheCapacity = DEFAULT_CACHE_CAPACITY;
+        private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+        private MonteCarloEstimator estimator;
+        private Approximation approximation = Approximation.EDGEWORTH;
+        private long analyticThreshold = Long.MAX_VALUE;
+        private long maxConvolutionSize = DEFAULT_MAX_CONVOLUTION_SIZE;
+
+        private CalculatorDefinition() {
+        }
+
+        /**
+         * @param cacheCapacity maximal number of dice pools whose distributions are kept for further queries
+         */
+        public CalculatorDefinition withCacheCapacity(int cacheCapacity) {
+
+            this.cacheCapacity = cacheCapacity;
+            return this;
+        }
+
+        /**
+         * @param parallelThreshold minimal number of possible results of a pool of different dice to sum up their
+         * distributions concurrently, smaller pools stay on the calling thread
+         */
+        public CalculatorDefinition withParallelThreshold(int parallelThreshold) {
+
+            this.parallelThreshold = parallelThreshold;
+            return this;
+        }
+
+        public CalculatorDefinition withForkJoinPool(ForkJoinPool forkJoinPool) {
+
+            this.forkJoinPool = forkJoinPool;
+            return this;
+        }
+
+        /**
+         * @param estimator samples pools which are too large for exact counts, instead of approximating them by FFT
+         */
+        public CalculatorDefinition withMonteCarlo(MonteCarloEstimator estimator) {
+
+            this.estimator = estimator;
+            return this;
+        }
+
+        public CalculatorDefinition withApproximation(Approximation approximation) {
+
+            this.approximation = approximation;
+            return this;
+        }
+
+        /**
+         * Pools are approximated analytically only if they are too large for exact counts and have enough dice for a
+         * small error by default, this approximates any pool of a given size, no matter how few dice it has.
+         *
+         * @param analyticThreshold minimal difference of the maximal and the minimal result of a pool to approximate
+         * its probabilities analytically in the number of dice, instead of computing its distribution
+         */
+        public CalculatorDefinition withAnalyticThreshold(long analyticThreshold) {
+
+            this.analyticThreshold = analyticThreshold;
+            return this;
+        }
+
+        /**
+         * @param maxConvolutionSize maximal number of possible results of a pool which is too large for exact counts
+         * to approximate its distribution by FFT, larger pools are approximated analytically or by the Monte Carlo
+         * estimator, 2^20 by default
+         */
+        public CalculatorDefinition withMaxConvolutionSize(long maxConvolutionSize) {
+
+            this.maxConvolutionSize = maxConvolutionSize;
+            return this;
+        }
+
+        public ResultProbabilityCalculator create() {
+
+            if (cacheCapacity < 0) {
+                throw new IllegalArgumentException("Cache capacity cannot be negative. Invalid capacity: " + cacheCapacity);
+            }
+            if (parallelThreshold < 0) {
+                throw new IllegalArgumentException(
+                    "Parallel threshold cannot be negative. Invalid threshold: " + parallelThreshold);
+            }
+            if (forkJoinPool == null) {
+                throw new IllegalArgumentException("Fork join pool must be defined.");
+            }
+            if (approximation == null) {
+                throw new IllegalArgumentException("Approximation must be defined.");
+            }
+            if (analyticThreshold < 0) {
+                throw new IllegalArgumentException(
+                    "Analytic threshold cannot be negative. Invalid threshold: " + analyticThreshold);
+            }
+            if (maxConvolutionSize < 1) {
+                throw new IllegalArgumentException(
+                    "Maximal convolution size must be positive. Invalid size: " + maxConvolutionSize);
+            }
+            return new ResultProbabilityCalculator(cacheCapacity, parallelThreshold, forkJoinPool, estimator,
+                approximation, analyticThreshold, maxConvolutionSize);
+        }
+    }
 }
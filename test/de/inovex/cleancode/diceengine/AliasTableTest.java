@@ -0,0 +1,46 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class AliasTableTest {
+
+    @Test
+    void preservesProbabilitiesOfAllResults() {
+
+        Stream.of(
+                Distribution.constant(7),
+                Distribution.of(-3, new long[] {5, 0, 1, 0, 2}),
+                Distribution.uniformSum(6, 3),
+                Distribution.uniformSum(6, 40))
+            .forEach(distribution -> {
+                AliasTable table = new AliasTable(distribution);
+                double[] reconstructed = new double[table.size()];
+                for (int column = 0; column < table.size(); column++) {
+                    double own = table.threshold(column) / (double) AliasTable.PRECISION;
+                    reconstructed[column] += own / table.size();
+                    reconstructed[table.alias(column)] += (1.0 - own) / table.size();
+                }
+
+                double[] expected = distribution.probabilities();
+                for (int i = 0; i < expected.length; i++) {
+                    assertThat(reconstructed[i]).isCloseTo(expected[i], within(1e-8));
+                }
+            });
+    }
+
+    @Test
+    void samplesColumnOrAlias() {
+
+        AliasTable table = new AliasTable(Distribution.of(10, new long[] {1, 3}));
+
+        assertThat(table.sample(bound -> 0)).isEqualTo(10);
+        assertThat(table.sample(bound -> bound == 2 ? 0 : AliasTable.PRECISION - 1)).isEqualTo(11);
+        assertThat(table.sample(bound -> bound == 2 ? 1 : 0)).isEqualTo(11);
+    }
+}
@@ -0,0 +1,83 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ConvolutionTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    void convolvesLargeCountsExactly() {
+
+        long[] a = random.longs(3000, 0, 1_000_000).toArray();
+        long[] b = random.longs(2000, 0, 1_000_000).toArray();
+
+        long[] expected = new long[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                expected[i + j] += a[i] * b[j];
+            }
+        }
+
+        assertThat(Convolution.convolve(a, b)).containsExactly(expected);
+    }
+
+    @Test
+    void computesUniformSumsByRepeatedSquaring() {
+
+        long[] bySlidingWindow = {1};
+        for (int d = 0; d < 60; d++) {
+            bySlidingWindow = Convolution.addUniform(bySlidingWindow, 2);
+        }
+
+        assertThat(Convolution.uniformSum(2, 60)).containsExactly(bySlidingWindow);
+    }
+
+    @Test
+    void convolvesLargeCountsBeyondLongRangeExactly() {
+
+        BigInteger[] a = random.longs(200, 0, Long.MAX_VALUE).mapToObj(BigInteger::valueOf)
+            .map(value -> value.shiftLeft(100)).toArray(BigInteger[]::new);
+        BigInteger[] b = random.longs(150, 0, Long.MAX_VALUE).mapToObj(BigInteger::valueOf).toArray(BigInteger[]::new);
+        b[0] = BigInteger.ZERO;
+
+        BigInteger[] expected = new BigInteger[a.length + b.length - 1];
+        Arrays.fill(expected, BigInteger.ZERO);
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                expected[i + j] = expected[i + j].add(a[i].multiply(b[j]));
+            }
+        }
+
+        assertThat(Convolution.convolve(a, b)).containsExactly(expected);
+    }
+
+    @Test
+    void rejectsCountsExceedingLongRange() {
+
+        assertThatThrownBy(() -> Convolution.uniformSum(20, 500))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void approximatesProbabilitiesOfLargePools() {
+
+        double[] probabilities = Convolution.uniformSumProbabilities(20, 500);
+
+        assertThat(probabilities).hasSize(500 * 19 + 1);
+        assertThat(Arrays.stream(probabilities).sum()).isCloseTo(1.0, within(1e-9));
+        assertThat(probabilities[0]).isCloseTo(0.0, within(1e-12));
+        for (int i = 0; i < probabilities.length; i++) {
+            assertThat(probabilities[i]).isCloseTo(probabilities[probabilities.length - 1 - i], within(1e-12));
+        }
+    }
+}
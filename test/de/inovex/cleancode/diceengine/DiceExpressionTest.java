@@ -0,0 +1,72 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class DiceExpressionTest {
+
+    @Test
+    void compilesDiceAndModifiers() {
+
+        DiceExpression expression = DiceExpression.compile("3d6+2d8-1");
+
+        assertThat(expression).hasToString("3d6+2d8-1");
+        assertThat(expression.dice()).extracting(Dice::key)
+            .containsExactly(new Dice.Key(6, 3, -1), new Dice.Key(8, 2, 0));
+        assertThat(expression.mod()).isEqualTo(-1);
+        assertThat(expression.minimum()).isEqualTo(4);
+        assertThat(expression.maximum()).isEqualTo(33);
+        assertThat(expression.distribution().toResults()).isEqualTo(Dice.define().withSides(6).withDice(3).create()
+            .distribution()
+            .add(Dice.define().withSides(8).withDice(2).withMod(-1).create().distribution())
+            .toResults());
+        assertThat(expression.distribution()).isSameAs(expression.distribution());
+        IntStream.range(0, 100).forEach(i -> assertThat(expression.throwDice()).isBetween(4, 33));
+    }
+
+    @Test
+    void mergesEqualDiceAndModifiers() {
+
+        assertThat(DiceExpression.compile(" d6 + 4 + 2D6 +1 ")).hasToString("3d6+5");
+        assertThat(DiceExpression.compile("2d8+1d4-3+3")).hasToString("1d4+2d8");
+        assertThat(DiceExpression.compile("-2+5")).hasToString("3");
+        assertThat(DiceExpression.compile("0").distribution().toResults()).containsExactly(new Result(0, 1, 1));
+        assertThat(DiceExpression.compile("7").throwDice()).isEqualTo(7);
+        assertThat(DiceExpression.compile("d20+d20")).isEqualTo(DiceExpression.compile("2d20"));
+    }
+
+    @Test
+    void internsCompiledExpressions() {
+
+        DiceExpression first = DiceExpression.compile("4d10+17");
+        long misses = DiceExpression.compiledCache().statistics().misses();
+
+        assertThat(DiceExpression.compile("4d10+17")).isSameAs(first);
+        assertThat(DiceExpression.compiledCache().statistics().misses()).isEqualTo(misses);
+    }
+
+    @Test
+    void rejectsInvalidExpressions() {
+
+        assertThatThrownBy(() -> DiceExpression.compile("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("3d6+")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("3d")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("3d0")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("3d6 2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("3x6")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("10-2d6"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("subtracted");
+        assertThatThrownBy(() -> DiceExpression.compile("3000000000"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("2000000000d2"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DiceExpression.compile("2000000000+2000000000"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,87 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+import org.junit.jupiter.api.Test;
+
+class DicePoolTest {
+
+    private final Dice oneTwentySidedDice = Dice.define().withSides(20).create();
+    private final Dice threeSixSidedDice = Dice.define().withSides(6).withDice(3).withMod(2).create();
+    private final Dice oneFourSidedDice = Dice.define().withSides(4).create();
+
+    @Test
+    void startsWithoutResults() {
+
+        DicePool pool = new DicePool();
+
+        assertThat(pool.isEmpty()).isTrue();
+        assertThat(pool.distribution().toResults()).containsExactly(new Result(0, 1, 1));
+        assertThat(pool.throwDice()).isZero();
+    }
+
+    @Test
+    void updatesDistributionWhenAddingDice() {
+
+        DicePool pool = new DicePool(oneTwentySidedDice, threeSixSidedDice);
+        pool.add(oneFourSidedDice);
+
+        assertThat(pool.dice()).containsExactly(oneTwentySidedDice, threeSixSidedDice, oneFourSidedDice);
+        assertThat(pool.distribution().toResults()).isEqualTo(oneTwentySidedDice.distribution()
+            .add(threeSixSidedDice.distribution())
+            .add(oneFourSidedDice.distribution())
+            .toResults());
+        assertThat(pool.throwDice()).isBetween(7, 46);
+    }
+
+    @Test
+    void updatesDistributionWhenRemovingDice() {
+
+        DicePool pool = new DicePool(oneTwentySidedDice, oneFourSidedDice, threeSixSidedDice, oneFourSidedDice);
+
+        pool.remove(Dice.define().withSides(4).create());
+        assertThat(pool.dice()).containsExactly(oneTwentySidedDice, oneFourSidedDice, threeSixSidedDice);
+        assertThat(pool.distribution().toResults()).isEqualTo(new DicePool(
+            oneTwentySidedDice, oneFourSidedDice, threeSixSidedDice).distribution().toResults());
+
+        pool.remove(threeSixSidedDice).remove(oneFourSidedDice).remove(oneTwentySidedDice);
+        assertThat(pool.isEmpty()).isTrue();
+        assertThat(pool.distribution().toResults()).containsExactly(new Result(0, 1, 1));
+    }
+
+    @Test
+    void updatesLargeDistributions() {
+
+        Dice manyDice = Dice.define().withSides(6).withDice(25).create();
+        DicePool pool = new DicePool(manyDice, oneTwentySidedDice);
+
+        assertThat(pool.distribution().isLarge()).isTrue();
+        pool.remove(manyDice);
+        assertThat(pool.distribution().isLarge()).isFalse();
+        assertThat(pool.distribution().toResults()).isEqualTo(oneTwentySidedDice.resultDistribution());
+    }
+
+    @Test
+    void summarizesSums() {
+
+        DicePool pool = new DicePool(oneTwentySidedDice, threeSixSidedDice);
+
+        assertThat(pool.mean()).isEqualTo(23.0);
+        assertThat(pool.variance()).isEqualTo(399 / 12.0 + 8.75);
+        assertThat(pool.summary()).isEqualTo(new Summary(23.0, 399 / 12.0 + 8.75, 6, 23, 40));
+        assertThat(pool.quantile(0.95)).isEqualTo(pool.distribution().quantile(0.95));
+        assertThat(new DicePool().summary()).isEqualTo(new Summary(0.0, 0.0, 0, 0, 0));
+    }
+
+    @Test
+    void cannotRemoveMissingDice() {
+
+        DicePool pool = new DicePool(oneTwentySidedDice);
+
+        assertThatThrownBy(() -> pool.remove(oneFourSidedDice))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(pool.dice()).containsExactly(oneTwentySidedDice);
+    }
+}
@@ -3,12 +3,16 @@ package de.inovex.cleancode.diceengine;
 import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.*;
 
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -288,6 +292,25 @@ class DiceTest {
         );
     }
 
+    @Test
+    void returnsSymmetricDistributionForLargePools() {
+
+        Dice tenDSix = Dice.define()
+            .withDice(10)
+            .withSides(6)
+            .create();
+
+        List<Result> distribution = tenDSix.resultDistribution();
+        int combinations = numberOfCombinations(tenDSix);
+
+        assertThat(distribution).hasSize(51);
+        assertThat(distribution.stream().mapToLong(Result::count).sum()).isEqualTo(combinations);
+        assertThat(distribution.get(0)).isEqualTo(new Result(10, 1, combinations));
+        assertThat(distribution.get(25)).isEqualTo(new Result(35, 4395456, combinations));
+        IntStream.range(0, distribution.size()).forEach(i ->
+            assertThat(distribution.get(i).count()).isEqualTo(distribution.get(50 - i).count()));
+    }
+
     private int numberOfCombinations(Dice dice) {
 
         return Double.valueOf(Math.pow(dice.sides, dice.dice)).intValue();
@@ -352,6 +375,132 @@ class DiceTest {
         verify(random, times(8)).next(10);
     }
 
+    @Test
+    void throwsManyDiceAtOnce() {
+
+        ScriptedRandomSource random = new ScriptedRandomSource(3, 2, 0, 3, 0, 2, 1, 4, 3, 0);
+        Dice twoDFive = Dice.define(random)
+            .withSides(5)
+            .withDice(2)
+            .create();
+
+        int[] target = new int[3];
+        twoDFive.throwDice(target);
+        assertThat(target).containsExactly(7, 5, 4);
+        assertThat(twoDFive.throwDice(1)).containsExactly(7);
+        assertThat(twoDFive.rolls().limit(1).toArray()).containsExactly(5);
+        assertThat(random.calls).isEqualTo(10);
+
+        assertThat(twoDFive.throwDice(0)).isEmpty();
+        assertThatThrownBy(() -> twoDFive.throwDice(-1))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        random = new ScriptedRandomSource(4, 2, 6, 3);
+        assertThat(Dice.define(random)
+            .withSides(10)
+            .withMod(2)
+            .create()
+            .throwDice(4))
+            .containsExactly(7, 5, 9, 6);
+        assertThat(random.calls).isEqualTo(4);
+    }
+
+    @Test
+    void throwsManyDiceOfChosenAlgorithm() {
+
+        Stream.of("L64X128MixRandom", "Xoshiro256PlusPlus", "SplittableRandom").forEach(algorithm -> {
+            Dice dice = Dice.define()
+                .withAlgorithm(algorithm)
+                .withSides(6)
+                .withDice(4)
+                .create();
+
+            assertThat(IntStream.of(dice.throwDice(SAMPLE_SIZE)))
+                .allSatisfy(value -> assertThat(value).isBetween(4, 24));
+        });
+
+        assertThatThrownBy(() -> Dice.define().withAlgorithm("NoSuchRandom"))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void throwsDiceOfGivenGenerator() {
+
+        Dice dice = Dice.define()
+            .withRandom(new SplittableRandom(42))
+            .withSides(20)
+            .withDice(3)
+            .create();
+        Dice sameDice = Dice.define()
+            .withRandom(new SplittableRandom(42))
+            .withSides(20)
+            .withDice(3)
+            .create();
+
+        int[] bulk = dice.throwDice(SAMPLE_SIZE);
+        int[] single = IntStream.range(0, SAMPLE_SIZE).map(i -> sameDice.throwDice()).toArray();
+        assertThat(bulk).containsExactly(single);
+    }
+
+    @Test
+    void throwsIntoRangeOfTarget() {
+
+        Dice dice = Dice.define().withSides(6).withDice(2).withMod(1).create();
+        int[] target = new int[10];
+        Arrays.fill(target, -1);
+
+        dice.throwDice(target, 2, 7);
+
+        assertThat(IntStream.range(2, 7).map(i -> target[i])).allSatisfy(value -> assertThat(value).isBetween(3, 13));
+        assertThat(IntStream.of(target).filter(value -> value == -1)).hasSize(5);
+        assertThatThrownBy(() -> dice.throwDice(target, 7, 11)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> dice.throwDice(target, 3, 2)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void throwsReproduciblyForEqualSeeds() throws Exception {
+
+        Dice dice = Dice.define().withSides(20).withDice(3).withMod(1).create();
+        Dice keptDice = Dice.define().withSides(6).withDice(4).withDropLowest(1).create();
+        int count = 200_000;
+
+        int[] sequential = new ForkJoinPool(1).submit(() -> dice.throwDice(count, 42)).get();
+        int[] parallel = new ForkJoinPool(4).submit(() -> dice.throwDice(count, 42)).get();
+
+        // each chunk of results is rolled by the next generator split from the seed
+        SplittableRandom master = new SplittableRandom(42);
+        int[] expected = new int[count];
+        for (int from = 0; from < count; from += 1 << 16) {
+            int[] chunk = Dice.define().withRandom(master.split()).withSides(20).withDice(3).withMod(1).create()
+                .throwDice(Math.min(1 << 16, count - from));
+            System.arraycopy(chunk, 0, expected, from, chunk.length);
+        }
+        assertThat(parallel).isEqualTo(sequential).isEqualTo(expected);
+        assertThat(dice.throwDice(count, 43)).isNotEqualTo(parallel);
+        int[] kept = keptDice.throwDice(count, 7);
+        assertThat(kept).isEqualTo(keptDice.throwDice(count, 7));
+        assertThat(IntStream.of(kept)).allSatisfy(value -> assertThat(value).isBetween(3, 18));
+        assertThat(dice.throwDice(0, 42)).isEmpty();
+        assertThatThrownBy(() -> dice.throwDice(-1, 42)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void throwsManyResultsOnlyInRange() {
+
+        Dice dice = Dice.define()
+            .withDice(3)
+            .withSides(6)
+            .withMod(-2)
+            .create();
+
+        int[] results = dice.throwDice(SAMPLE_SIZE);
+        assertThat(results).hasSize(SAMPLE_SIZE);
+        assertThat(IntStream.of(results))
+            .allSatisfy(value -> assertThat(value).isBetween(1, 16));
+        assertThat(dice.rolls().limit(SAMPLE_SIZE))
+            .allSatisfy(value -> assertThat(value).isBetween(1, 16));
+    }
+
     private RandomInt prepareRandomSource(Integer first, Integer... values) {
 
         RandomInt random = Mockito.mock(RandomInt.class);
@@ -359,6 +508,236 @@ class DiceTest {
         return random;
     }
 
+    @Test
+    void throwsLargePoolsBySampling() {
+
+        Dice pool = Dice.define()
+            .withRandom(new SplittableRandom(7))
+            .withAliasSampling()
+            .withSides(6)
+            .withDice(200)
+            .withMod(-100)
+            .create();
+
+        int[] results = pool.throwDice(100 * SAMPLE_SIZE);
+        assertThat(IntStream.of(results))
+            .allSatisfy(value -> assertThat(value).isBetween(100, 1100));
+        assertThat(IntStream.of(results).average().orElseThrow()).isBetween(598.0, 602.0);
+        assertThat(pool.throwDice()).isBetween(100, 1100);
+    }
+
+    @Test
+    void keepsOnlyHighestOrLowestDice() {
+
+        Dice dropLowest = Dice.define(new ScriptedRandomSource(2, 5, 0, 3))
+            .withDice(4)
+            .withSides(6)
+            .withDropLowest(1)
+            .create();
+        Dice keepLowest = Dice.define(new ScriptedRandomSource(19, 4))
+            .withDice(2)
+            .withSides(20)
+            .withKeepLowest(1)
+            .create();
+        Dice keepNone = Dice.define(new ScriptedRandomSource(1, 2))
+            .withDice(2)
+            .withSides(20)
+            .withKeepHighest(0)
+            .withMod(3)
+            .create();
+
+        assertThat(dropLowest.throwDice()).isEqualTo(3 + 6 + 4);
+        assertThat(keepLowest.throwDice()).isEqualTo(5);
+        assertThat(keepNone.throwDice()).isEqualTo(3);
+        assertThat(dropLowest.keep()).isEqualTo(3);
+        assertThat(dropLowest.minimum()).isEqualTo(3);
+        assertThat(dropLowest.maximum()).isEqualTo(18);
+        assertThat(dropLowest.key()).isEqualTo(new Dice.Key(6, 4, 0, 3, false));
+        assertThat(keepLowest.key()).isEqualTo(new Dice.Key(20, 2, 0, 1, true));
+        assertThat(Dice.define().withDice(3).withSides(6).withDropHighest(0).create().key())
+            .isEqualTo(new Dice.Key(6, 3, 0));
+    }
+
+    @Test
+    void throwsKeptDiceAccordingToDistribution() {
+
+        Dice dice = Dice.define()
+            .withRandom(new SplittableRandom(11))
+            .withDice(7)
+            .withSides(6)
+            .withKeepHighest(4)
+            .withMod(-1)
+            .create();
+
+        int[] results = dice.throwDice(100 * SAMPLE_SIZE);
+        assertThat(IntStream.of(results))
+            .allSatisfy(value -> assertThat(value).isBetween(3, 23));
+        double mean = dice.resultDistribution().stream()
+            .mapToDouble(result -> result.result() * (double) result.count() / result.overall())
+            .sum();
+        assertThat(IntStream.of(results).average().orElseThrow()).isBetween(mean - 0.05, mean + 0.05);
+    }
+
+    @Test
+    void cannotKeepMoreThanAllDice() {
+
+        assertThatThrownBy(() -> Dice.define().withDice(2).withSides(6).withKeepHighest(3).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dice.define().withDice(2).withSides(6).withDropLowest(3).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dice.define().withDice(2).withSides(6).withKeepLowest(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rerollsLowResultsOnce() {
+
+        Dice dice = Dice.define(new ScriptedRandomSource(0, 0, 3))
+            .withDice(2)
+            .withSides(6)
+            .withRerollOnce(1)
+            .create();
+
+        assertThat(dice.throwDice()).isEqualTo(1 + 4);
+        assertThat(Dice.define().withSides(6).withRerollOnce(1).create().resultDistribution()).containsExactly(
+            new Result(1, 1, 36),
+            new Result(2, 7, 36),
+            new Result(3, 7, 36),
+            new Result(4, 7, 36),
+            new Result(5, 7, 36),
+            new Result(6, 7, 36));
+    }
+
+    @Test
+    void explodesOnHighestFace() {
+
+        Dice dice = Dice.define(new ScriptedRandomSource(5, 5, 2, 5, 5, 5, 5))
+            .withDice(2)
+            .withSides(6)
+            .withExplosions(2)
+            .create();
+
+        assertThat(dice.throwDice()).isEqualTo(6 + 6 + 3 + 6 + 6 + 6);
+        assertThat(dice.maximum()).isEqualTo(36);
+        assertThat(dice.tailMass()).isCloseTo(1 - Math.pow(1 - 1 / 216.0, 2), within(1e-15));
+
+        Distribution distribution = Dice.define().withSides(6).withExplosions(2).create().distribution();
+        assertThat(distribution.overall()).isEqualTo(216);
+        IntStream.rangeClosed(1, 5).forEach(r -> assertThat(distribution.count(r)).isEqualTo(36));
+        assertThat(distribution.count(6)).isZero();
+        IntStream.rangeClosed(7, 11).forEach(r -> assertThat(distribution.count(r)).isEqualTo(6));
+        assertThat(distribution.count(12)).isZero();
+        IntStream.rangeClosed(13, 18).forEach(r -> assertThat(distribution.count(r)).isEqualTo(1));
+    }
+
+    @Test
+    void explodesUpToTolerance() {
+
+        Dice dice = Dice.define()
+            .withRandom(new SplittableRandom(5))
+            .withSides(6)
+            .withExplosionTolerance(1e-6)
+            .create();
+
+        assertThat(dice.explosions()).isEqualTo(7);
+        assertThat(dice.tailMass()).isLessThanOrEqualTo(1e-6);
+        assertThat(IntStream.of(dice.throwDice(100 * SAMPLE_SIZE)).average().orElseThrow()).isBetween(4.15, 4.25);
+        assertThat(Dice.define().withSides(6).withDice(0).withExplosionTolerance(1e-6).create().explosions()).isZero();
+    }
+
+    @Test
+    void cannotCreateInvalidlyModifiedDice() {
+
+        assertThatThrownBy(() -> Dice.define().withSides(6).withRerollOnce(6).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dice.define().withSides(6).withExplosions(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dice.define().withSides(6).withExplosionTolerance(0.0).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dice.define().withSides(6).withDice(2).withDropLowest(1).withExplosions(1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Dice.define().withSides(1000).withDice(1000).withExplosions(10000).create())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsResultsBeyondLongRange() {
+
+        Dice dice = Dice.define().withSides(6).withDice(30).create();
+
+        assertThat(dice.distribution().isLarge()).isTrue();
+        assertThatThrownBy(dice::resultDistribution)
+            .isInstanceOf(ArithmeticException.class)
+            .hasMessageContaining("30d6");
+    }
+
+    @Test
+    void keepsDistributionAfterFirstUse() {
+
+        Dice dice = Dice.define().withSides(11).withDice(7).withMod(2).create();
+
+        Distribution distribution = dice.distribution();
+        List<Result> results = dice.resultDistribution();
+        Dice.distributionCache().clear();
+        long misses = Dice.distributionCache().statistics().misses();
+
+        assertThat(dice.distribution()).isSameAs(distribution);
+        assertThat(dice.resultDistribution()).isSameAs(results);
+        assertThat(dice.withRandom(RandomInt.of(new SplittableRandom(3))).distribution()).isSameAs(distribution);
+        assertThat(Dice.distributionCache().statistics().misses()).isEqualTo(misses);
+        assertThatThrownBy(() -> results.remove(0))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void summarizesResults() {
+
+        Dice dice = Dice.define().withSides(6).withDice(3).withMod(2).create();
+        Dice keptDice = Dice.define().withSides(6).withDice(4).withDropLowest(1).create();
+        Dice explodingDice = Dice.define().withSides(6).withDice(5).withExplosions(3).withMod(-1).create();
+        Dice rerolledDice = Dice.define().withSides(10).withDice(2).withRerollOnce(2).create();
+
+        assertThat(dice.summary()).isEqualTo(new Summary(12.5, 8.75, 5, 12, 20));
+        assertThat(dice.summary().standardDeviation()).isCloseTo(Math.sqrt(8.75), within(1e-15));
+        Stream.of(dice, keptDice, explodingDice, rerolledDice).forEach(d -> {
+            assertThat(d.mean()).isCloseTo(d.distribution().mean(), within(1e-9));
+            assertThat(d.variance()).isCloseTo(d.distribution().variance(), within(1e-9));
+            IntStream.of(1, 5, 50, 95, 99).forEach(percent -> {
+                // the percentile is the first result whose cumulative count reaches it
+                long reached = 0;
+                int percentile = Integer.MIN_VALUE;
+                for (Result result : d.resultDistribution()) {
+                    reached += result.count();
+                    if (100 * reached >= percent * result.overall()) {
+                        percentile = result.result();
+                        break;
+                    }
+                }
+                assertThat(d.quantile(percent / 100.0)).isEqualTo(percentile);
+            });
+        });
+        assertThat(Dice.define().withSides(6).withDice(0).withMod(3).create().summary())
+            .isEqualTo(new Summary(3.0, 0.0, 3, 3, 3));
+    }
+
+    private static class ScriptedRandomSource implements RandomInt {
+
+        private final int[] values;
+
+        private int calls;
+
+        ScriptedRandomSource(int... values) {
+
+            this.values = values;
+        }
+
+        @Override
+        public int next(int bound) {
+
+            return values[calls++];
+        }
+    }
+
     private List<Integer> performRoll(Dice dice, int times) {
 
         return IntStream.range(0, times)
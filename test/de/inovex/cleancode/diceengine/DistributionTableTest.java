@@ -0,0 +1,105 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DistributionTableTest {
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void uninstallTable() {
+
+        DistributionTable.install(null);
+    }
+
+    @Test
+    void readsWrittenResults() throws IOException {
+
+        Path file = directory.resolve("distributions.bin");
+        DistributionTable.write(file, 12, 30);
+        DistributionTable table = DistributionTable.load(file);
+
+        assertThat(table.maxSides()).isEqualTo(12);
+        assertThat(table.maxDice()).isEqualTo(30);
+        for (int sides = 1; sides <= 12; sides++) {
+            for (int dice = 1; dice <= 17; dice++) {
+                Dice.Key key = new Dice.Key(sides, dice, -3);
+                assertThat(table.results(key)).isEqualTo(key.distribution().toResults());
+            }
+        }
+        // 30d12 exceeds the long range and is not stored
+        assertThat(table.results(new Dice.Key(12, 30, 0))).isNull();
+        assertThat(table.results(new Dice.Key(13, 1, 0))).isNull();
+        assertThat(table.results(new Dice.Key(6, 31, 0))).isNull();
+        assertThat(table.results(new Dice.Key(6, 4, 0, 3, false, 0, 0))).isNull();
+    }
+
+    @Test
+    void answersResultsOfInstalledTable() throws IOException {
+
+        Path file = directory.resolve("distributions.bin");
+        DistributionTable.write(file, 6, 4);
+        DistributionTable.install(DistributionTable.load(file));
+
+        Dice tabled = Dice.define().withSides(6).withDice(3).withMod(2).create();
+        Dice computed = Dice.define().withSides(8).withDice(3).withMod(2).create();
+
+        assertThat(tabled.resultDistribution())
+            .isEqualTo(tabled.distribution().toResults())
+            .isSameAs(tabled.resultDistribution())
+            .first().isEqualTo(new Result(5, 1, 216));
+        assertThat(computed.resultDistribution()).isEqualTo(computed.distribution().toResults());
+        assertThatThrownBy(() -> tabled.resultDistribution().set(0, null))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void answersDistributionsOfInstalledTable() throws IOException {
+
+        Path file = directory.resolve("distributions.bin");
+        DistributionTable.write(file, 7, 5);
+        DistributionTable.install(DistributionTable.load(file));
+        Dice.distributionCache().clear();
+        EngineMetrics.reset();
+        EngineMetrics.enable();
+        try {
+            Distribution tabled = Dice.define().withSides(7).withDice(5).withMod(-1).create().distribution();
+
+            assertThat(tabled.toResults()).isEqualTo(Distribution.uniformSum(7, 5).shift(-1).toResults());
+            assertThat(EngineMetrics.snapshot().buildLatencies().count()).isZero();
+        } finally {
+            EngineMetrics.disable();
+            EngineMetrics.reset();
+        }
+    }
+
+    @Test
+    void rejectsInvalidFiles() throws IOException {
+
+        Path file = directory.resolve("distributions.bin");
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThatThrownBy(() -> DistributionTable.load(file)).isInstanceOf(IOException.class);
+
+        Files.write(file, ByteBuffer.allocate(16).putInt(0x44494345).putInt(99).array());
+        assertThatThrownBy(() -> DistributionTable.load(file))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("version");
+
+        Files.write(file, ByteBuffer.allocate(16).putInt(0x44494345).putInt(1).putInt(5).putInt(5).array());
+        assertThatThrownBy(() -> DistributionTable.load(file)).isInstanceOf(IOException.class);
+
+        assertThatThrownBy(() -> DistributionTable.write(file, 0, 5)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
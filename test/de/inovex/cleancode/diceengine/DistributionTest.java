@@ -0,0 +1,255 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class DistributionTest {
+
+    @Test
+    void cannotCreateEmptyDistribution() {
+
+        assertThatThrownBy(() -> Distribution.of(0, new long[0]))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Distribution.of(0, new long[] {0, 0}))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Distribution.of(0, new long[] {1, -1}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void cannotExceedResultRange() {
+
+        assertThatThrownBy(() -> Distribution.of(Integer.MAX_VALUE, new long[] {1, 1}))
+            .isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Distribution.constant(Integer.MAX_VALUE).shift(1))
+            .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void countsResultsWithinRange() {
+
+        Distribution distribution = Distribution.of(-1, new long[] {1, 0, 3});
+
+        assertThat(distribution.minimum()).isEqualTo(-1);
+        assertThat(distribution.maximum()).isEqualTo(1);
+        assertThat(distribution.overall()).isEqualTo(4);
+        assertThat(distribution.count(-2)).isZero();
+        assertThat(distribution.count(-1)).isEqualTo(1);
+        assertThat(distribution.count(0)).isZero();
+        assertThat(distribution.count(1)).isEqualTo(3);
+        assertThat(distribution.count(Integer.MAX_VALUE)).isZero();
+        assertThat(distribution.probability(1)).isEqualTo(0.75);
+    }
+
+    @Test
+    void calculatesProbabilitiesOfRanges() {
+
+        Distribution distribution = Distribution.of(-1, new long[] {1, 0, 3, 4});
+
+        assertThat(distribution.probabilityAtMost(-2)).isZero();
+        assertThat(distribution.probabilityAtMost(-1)).isEqualTo(0.125);
+        assertThat(distribution.probabilityAtMost(0)).isEqualTo(0.125);
+        assertThat(distribution.probabilityAtMost(1)).isEqualTo(0.5);
+        assertThat(distribution.probabilityAtMost(Integer.MAX_VALUE)).isEqualTo(1.0);
+        assertThat(distribution.probabilityBetween(0, 1)).isEqualTo(0.375);
+        assertThat(distribution.probabilityBetween(1, 0)).isZero();
+        assertThat(distribution.probabilityBetween(2, Integer.MAX_VALUE)).isEqualTo(0.5);
+        assertThat(distribution.shift(10).probabilityBetween(11, 12)).isEqualTo(0.875);
+
+        Distribution large = Distribution.uniformSum(6, 30);
+        assertThat(large.probabilityBetween(30, 180)).isEqualTo(1.0);
+        assertThat(large.probabilityBetween(106, 180))
+            .isCloseTo(IntStream.rangeClosed(106, 180).mapToDouble(large::probability).sum(), within(1e-12));
+        assertThat(large.probabilityAtMost(104)).isEqualTo(large.probabilityBetween(106, 180));
+    }
+
+    @Test
+    void calculatesQuantilesAndMoments() {
+
+        Distribution distribution = Distribution.uniformSum(6, 2);
+
+        assertThat(distribution.mean()).isCloseTo(7.0, within(1e-12));
+        assertThat(distribution.variance()).isCloseTo(35 / 6.0, within(1e-12));
+        assertThat(distribution.quantile(0.0)).isEqualTo(2);
+        assertThat(distribution.quantile(0.5)).isEqualTo(7);
+        assertThat(distribution.quantile(0.25)).isEqualTo(5);
+        assertThat(distribution.quantile(1.0)).isEqualTo(12);
+        assertThatThrownBy(() -> distribution.quantile(1.5)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> distribution.quantile(Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+
+        Distribution large = Distribution.uniformSum(20, 100);
+        assertThat(large.isLarge()).isTrue();
+        assertThat(large.quantile(0.5)).isEqualTo(1050);
+        assertThat(large.quantile(1.0)).isEqualTo(2000);
+        assertThat(large.mean()).isCloseTo(1050.0, within(1e-9));
+        assertThat(large.variance()).isCloseTo(100 * 399 / 12.0, within(1e-6));
+    }
+
+    @Test
+    void addsIndependentResults() {
+
+        Distribution sum = Distribution.uniformSum(4, 1).add(Distribution.uniformSum(3, 2)).shift(-3);
+
+        assertThat(sum.minimum()).isZero();
+        assertThat(sum.maximum()).isEqualTo(7);
+        assertThat(sum.overall()).isEqualTo(36);
+        assertThat(sum.toResults()).containsExactly(
+            new Result(0, 1, 36),
+            new Result(1, 3, 36),
+            new Result(2, 6, 36),
+            new Result(3, 8, 36),
+            new Result(4, 8, 36),
+            new Result(5, 6, 36),
+            new Result(6, 3, 36),
+            new Result(7, 1, 36));
+    }
+
+    @Test
+    void removesIndependentParts() {
+
+        Distribution part = Distribution.of(2, new long[] {2, 0, 1});
+        Distribution other = Distribution.uniformSum(10, 3);
+        Distribution sum = other.add(part);
+
+        Distribution removed = sum.remove(part);
+        assertThat(removed.toResults()).isEqualTo(other.toResults());
+        assertThat(sum.remove(other).toResults()).isEqualTo(part.toResults());
+
+        assertThatThrownBy(() -> sum.remove(Distribution.uniformSum(7, 1)))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> part.remove(other))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void trimsImpossibleBoundaryResults() {
+
+        Distribution distribution = Distribution.of(3, new long[] {0, 0, 1, 2, 0});
+
+        assertThat(distribution.minimum()).isEqualTo(5);
+        assertThat(distribution.maximum()).isEqualTo(6);
+    }
+
+    @Test
+    void omitsImpossibleResults() {
+
+        assertThat(Distribution.of(5, new long[] {2, 0, 1}).toResults()).containsExactly(
+            new Result(5, 2, 3),
+            new Result(7, 1, 3));
+    }
+
+    @Test
+    void promotesCountsExceedingLongRange() {
+
+        Distribution distribution = Distribution.uniformSum(6, 30);
+
+        assertThat(distribution.isLarge()).isTrue();
+        assertThat(distribution.exactOverall()).isEqualTo(BigInteger.valueOf(6).pow(30));
+        assertThat(distribution.exactCount(30)).isEqualTo(BigInteger.ONE);
+        assertThat(distribution.exactCount(180)).isEqualTo(BigInteger.ONE);
+        assertThat(distribution.exactCount(31)).isEqualTo(BigInteger.valueOf(30));
+        assertThat(distribution.probabilityBetween(Integer.MIN_VALUE, Integer.MAX_VALUE)).isEqualTo(1.0);
+        assertThat(distribution.probabilityAtMost(105)).isGreaterThan(0.5);
+        assertThat(distribution.probability(31)).isEqualTo(30 / Math.pow(6, 30));
+        assertThat(distribution.probability(181)).isZero();
+        assertThatThrownBy(distribution::overall)
+            .isInstanceOf(ArithmeticException.class);
+
+        Distribution half = Distribution.uniformSum(6, 15);
+        assertThat(half.isLarge()).isFalse();
+        Distribution sum = half.add(half);
+        assertThat(sum.isLarge()).isTrue();
+        IntStream.rangeClosed(30, 180).forEach(r ->
+            assertThat(sum.exactCount(r)).isEqualTo(distribution.exactCount(r)));
+    }
+
+    @Test
+    void keepsExactCountsInLongRangeIfPossible() {
+
+        Distribution distribution = Distribution.of(2, new BigInteger[] {BigInteger.ZERO, BigInteger.ONE, BigInteger.TWO});
+        Distribution large = Distribution.of(0, new BigInteger[] {BigInteger.ONE, BigInteger.TWO.pow(64)});
+
+        assertThat(distribution.isLarge()).isFalse();
+        assertThat(distribution.toResults()).containsExactly(new Result(3, 1, 3), new Result(4, 2, 3));
+        assertThat(large.isLarge()).isTrue();
+        assertThat(large.exactCount(1)).isEqualTo(BigInteger.TWO.pow(64));
+        assertThatThrownBy(() -> Distribution.of(0, new BigInteger[] {BigInteger.ONE.negate()}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void multipliesIndependentResults() {
+
+        Distribution single = Distribution.of(-1, new long[] {1, 2});
+
+        assertThat(single.times(0).toResults()).containsExactly(new Result(0, 1, 1));
+        assertThat(single.times(3).toResults()).isEqualTo(single.add(single).add(single).toResults());
+        assertThat(Distribution.uniformSum(6, 15).times(2).exactCount(31))
+            .isEqualTo(Distribution.uniformSum(6, 30).exactCount(31));
+        assertThatThrownBy(() -> single.times(-1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void countsKeptDiceLikeEnumeratingAllRolls() {
+
+        for (int sides = 1; sides <= 6; sides++) {
+            for (int dice = 0; dice <= 5; dice++) {
+                for (int keep = 0; keep <= dice; keep++) {
+                    assertThat(Distribution.keepHighest(sides, dice, keep).toResults())
+                        .describedAs("%dd%d keep highest %d", dice, sides, keep)
+                        .isEqualTo(enumerateKept(sides, dice, keep, false));
+                    assertThat(Distribution.keepLowest(sides, dice, keep).toResults())
+                        .describedAs("%dd%d keep lowest %d", dice, sides, keep)
+                        .isEqualTo(enumerateKept(sides, dice, keep, true));
+                }
+            }
+        }
+        assertThatThrownBy(() -> Distribution.keepHighest(6, 2, 3))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void promotesKeptCountsExceedingLongRange() {
+
+        Distribution distribution = Distribution.keepHighest(6, 30, 3);
+
+        assertThat(distribution.isLarge()).isTrue();
+        assertThat(distribution.exactOverall()).isEqualTo(BigInteger.valueOf(6).pow(30));
+        assertThat(distribution.minimum()).isEqualTo(3);
+        assertThat(distribution.maximum()).isEqualTo(18);
+        assertThat(distribution.exactCount(3)).isEqualTo(BigInteger.ONE);
+        assertThat(IntStream.rangeClosed(3, 18).mapToObj(distribution::exactCount).reduce(BigInteger::add))
+            .contains(distribution.exactOverall());
+        assertThat(Distribution.keepLowest(6, 30, 3).exactCount(18)).isEqualTo(BigInteger.ONE);
+    }
+
+    private static List<Result> enumerateKept(int sides, int dice, int keep, boolean lowest) {
+
+        long[] counts = new long[keep * sides + 1];
+        int[] roll = new int[dice];
+        long overall = (long) Math.pow(sides, dice);
+        for (long r = 0; r < overall; r++) {
+            long rest = r;
+            for (int d = 0; d < dice; d++) {
+                roll[d] = (int) (rest % sides) + 1;
+                rest /= sides;
+            }
+            int[] sorted = IntStream.of(roll).sorted().toArray();
+            int sum = 0;
+            for (int k = 0; k < keep; k++) {
+                sum += lowest ? sorted[k] : sorted[dice - 1 - k];
+            }
+            counts[sum]++;
+        }
+        return Distribution.of(0, counts).toResults();
+    }
+}
@@ -0,0 +1,127 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import de.inovex.cleancode.diceengine.probability.ResultCategory;
+import de.inovex.cleancode.diceengine.probability.ResultProbabilityCalculator;
+
+class EngineMetricsTest {
+
+    @AfterEach
+    void disableMetrics() {
+
+        EngineMetrics.disable();
+        EngineMetrics.reset();
+    }
+
+    @Test
+    void countsNothingWhileDisabled() {
+
+        EngineMetrics.reset();
+        Dice.define().withSides(6).create().throwDice(100);
+
+        assertThat(EngineMetrics.isEnabled()).isFalse();
+        assertThat(EngineMetrics.snapshot().rolls()).isZero();
+    }
+
+    @Test
+    void measuresQueriesOnlyIfEnabledOrRecorded() {
+
+        assertThat(EngineMetrics.isQueryMeasured()).isFalse();
+        EngineMetrics.enable();
+        assertThat(EngineMetrics.isQueryMeasured()).isTrue();
+        EngineMetrics.disable();
+        try (Recording recording = new Recording()) {
+            recording.enable("diceengine.ProbabilityQuery");
+            recording.start();
+            assertThat(EngineMetrics.isQueryMeasured()).isTrue();
+        }
+        assertThat(EngineMetrics.isQueryMeasured()).isFalse();
+    }
+
+    @Test
+    void countsRollsAndQueries() {
+
+        Dice dice = Dice.define().withSides(6).withDice(3).create();
+        // the queried dice are built before measuring, only the distinct dice is built afterwards
+        dice.distribution();
+        EngineMetrics.reset();
+        EngineMetrics.enable();
+        Dice distinctDice = Dice.define().withSides(7).withDice(31).withMod(-4).create();
+
+        dice.throwDice();
+        dice.throwDice(100);
+        dice.rolls().limit(10).sum();
+        distinctDice.distribution();
+        new ResultProbabilityCalculator().probabilities(List.of(ResultCategory.eq(3), ResultCategory.ge(10)), dice);
+
+        EngineMetrics.Snapshot snapshot = EngineMetrics.snapshot();
+        assertThat(snapshot.rolls()).isEqualTo(111);
+        assertThat(snapshot.queries()).isEqualTo(1);
+        assertThat(snapshot.queriedCategories()).isEqualTo(2);
+        assertThat(snapshot.queryLatencies().count()).isEqualTo(1);
+        assertThat(snapshot.buildLatencies().count()).isEqualTo(1);
+        assertThat(snapshot.buildLatencies().quantileNanos(0.5)).isPositive();
+        assertThat(snapshot.distributionCache()).isEqualTo(Dice.distributionCache().statistics());
+    }
+
+    @Test
+    void measuresBuildsOfPoolsOfCalculator() {
+
+        Dice.distributionCache().clear();
+        EngineMetrics.reset();
+        EngineMetrics.enable();
+        Dice dice = Dice.define().withSides(13).withDice(3).create();
+        Dice keptDice = Dice.define().withSides(17).withDice(2).withKeepHighest(1).create();
+
+        new ResultProbabilityCalculator().probability(ResultCategory.ge(10), dice, keptDice);
+
+        // both groups are built once and shared with the dice themselves
+        assertThat(EngineMetrics.snapshot().buildLatencies().count()).isEqualTo(2);
+        dice.distribution();
+        keptDice.distribution();
+        assertThat(EngineMetrics.snapshot().buildLatencies().count()).isEqualTo(2);
+    }
+
+    @Test
+    void recordsFlightRecorderEvents() throws Exception {
+
+        Path file = Files.createTempFile("diceengine", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("diceengine.DistributionBuild");
+            recording.enable("diceengine.ProbabilityQuery");
+            recording.start();
+            Dice.define().withSides(9).withDice(13).withKeepHighest(2).create().distribution();
+            new ResultProbabilityCalculator().probability(ResultCategory.eq(3), Dice.define().withSides(6).create());
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("diceengine.DistributionBuild"))
+                .anySatisfy(event -> {
+                    assertThat(event.getInt("sides")).isEqualTo(9);
+                    assertThat(event.getInt("keep")).isEqualTo(2);
+                    assertThat(event.getInt("supportSize")).isEqualTo(17);
+                });
+            assertThat(events)
+                .filteredOn(event -> event.getEventType().getName().equals("diceengine.ProbabilityQuery"))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getLong("supportSize")).isEqualTo(6));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
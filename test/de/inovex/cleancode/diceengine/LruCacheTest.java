@@ -0,0 +1,97 @@
+package de.inovex.cleancode.diceengine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class LruCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void cannotCreateCacheOfNegativeCapacity() {
+
+        assertThatThrownBy(() -> new LruCache<>(-1))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void loadsEachKeyOnlyOnce() {
+
+        LruCache<Integer, String> cache = new LruCache<>(4);
+
+        assertThat(cache.get(1, this::load)).isEqualTo("1");
+        assertThat(cache.get(1, this::load)).isEqualTo("1");
+        assertThat(cache.get(2, this::load)).isEqualTo("2");
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.statistics()).isEqualTo(new LruCache.Statistics(1, 2, 0, 2, 4));
+        assertThat(cache.statistics().hitRate()).isEqualTo(1 / 3.0);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() {
+
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.get(1, this::load);
+        cache.get(2, this::load);
+        cache.get(1, this::load);
+        cache.get(3, this::load);
+
+        cache.get(1, this::load);
+        assertThat(loads).hasValue(3);
+        cache.get(2, this::load);
+        assertThat(loads).hasValue(4);
+        assertThat(cache.statistics().evictions()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsEntriesWhenShrinking() {
+
+        LruCache<Integer, String> cache = new LruCache<>(8);
+        IntStream.range(0, 8).forEach(key -> cache.get(key, this::load));
+
+        cache.setCapacity(3);
+
+        assertThat(cache.capacity()).isEqualTo(3);
+        assertThat(cache.statistics().size()).isEqualTo(3);
+        assertThat(cache.statistics().evictions()).isEqualTo(5);
+        cache.get(7, this::load);
+        assertThat(loads).hasValue(8);
+    }
+
+    @Test
+    void keepsNothingWithoutCapacity() {
+
+        LruCache<Integer, String> cache = new LruCache<>(0);
+
+        assertThat(cache.get(1, this::load)).isEqualTo("1");
+        assertThat(cache.get(1, this::load)).isEqualTo("1");
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void sharesEntriesBetweenThreads() {
+
+        LruCache<Integer, String> cache = new LruCache<>(16);
+
+        IntStream.range(0, 10_000).parallel().forEach(i ->
+            assertThat(cache.get(i % 16, this::load)).isEqualTo(String.valueOf(i % 16)));
+
+        LruCache.Statistics statistics = cache.statistics();
+        assertThat(statistics.hits() + statistics.misses()).isEqualTo(10_000);
+        assertThat(statistics.size()).isEqualTo(16);
+        assertThat(statistics.evictions()).isZero();
+    }
+
+    private String load(int key) {
+
+        loads.incrementAndGet();
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,72 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+
+import org.junit.jupiter.api.Test;
+
+import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.Distribution;
+
+class AnalyticApproximationTest {
+
+    @Test
+    void approximatesPlainDiceWithinDocumentedBounds() {
+
+        Dice dice = Dice.define().withSides(6).withDice(100).withMod(-7).create();
+
+        assertThat(maximalError(false, dice)).isLessThan(3e-4);
+        assertThat(maximalError(true, dice)).isLessThan(1e-6);
+    }
+
+    @Test
+    void approximatesOtherDiceByTheirDistributions() {
+
+        Dice explodingDice = Dice.define().withSides(6).withDice(100).withExplosions(3).create();
+        Dice rerolledDice = Dice.define().withSides(8).withDice(60).withRerollOnce(1).create();
+        Dice keptDice = Dice.define().withSides(10).withDice(20).withKeepHighest(5).withMod(2).create();
+
+        assertThat(maximalError(false, explodingDice)).isLessThan(0.02);
+        assertThat(maximalError(true, explodingDice)).isLessThan(1e-4);
+        assertThat(maximalError(true, rerolledDice, keptDice)).isLessThan(1e-4);
+    }
+
+    @Test
+    void weighsDiceByTheirVariances() {
+
+        Dice dice = Dice.define().withSides(6).withDice(100).create();
+        Dice manySidedDice = Dice.define().withSides(1000).create();
+
+        assertThat(AnalyticApproximation.of(true, dice).effectiveDice()).isCloseTo(100, within(1e-9));
+        assertThat(AnalyticApproximation.of(true, dice, manySidedDice).effectiveDice()).isBetween(1.0, 2.0);
+    }
+
+    @Test
+    void keepsBoundsOfPool() {
+
+        AnalyticApproximation analytic = AnalyticApproximation.of(true, Dice.define().withSides(6).withDice(50).create());
+
+        assertThat(analytic.probabilityAtMost(49)).isZero();
+        assertThat(analytic.probabilityAtMost(300)).isEqualTo(1.0);
+        assertThat(analytic.probabilityAbove(300)).isZero();
+        assertThat(analytic.probabilityBetween(Long.MIN_VALUE, Long.MAX_VALUE)).isEqualTo(1.0);
+        assertThat(analytic.probabilityBetween(301, Long.MAX_VALUE)).isZero();
+        assertThat(analytic.probabilityBetween(176, 177)).isCloseTo(analytic.probabilityBetween(173, 174), within(1e-9));
+        assertThat(analytic.probabilityBetween(290, 300)).isBetween(0.0, 1e-12);
+    }
+
+    private static double maximalError(boolean edgeworth, Dice... dice) {
+
+        Distribution exact = dice[0].distribution();
+        for (int i = 1; i < dice.length; i++) {
+            exact = exact.add(dice[i].distribution());
+        }
+        AnalyticApproximation analytic = AnalyticApproximation.of(edgeworth, dice);
+        double error = 0.0;
+        for (int result = exact.minimum() - 1; result <= exact.maximum(); result++) {
+            error = Math.max(error, Math.abs(analytic.probabilityAtMost(result) - exact.probabilityAtMost(result)));
+        }
+        return error;
+    }
+}
@@ -0,0 +1,61 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class IntervalsTest {
+
+    @Test
+    void mergesGivenResults() {
+
+        Intervals intervals = Intervals.of(5, 3, 4, 9, 5, -1);
+
+        assertThat(intervals.size()).isEqualTo(3);
+        assertThat(intervals).hasToString("[-1, -1] | [3, 5] | [9, 9]");
+        assertThat(intervals.contains(4)).isTrue();
+        assertThat(intervals.contains(6)).isFalse();
+        assertThat(Intervals.of()).isEqualTo(Intervals.none());
+        assertThat(Intervals.of(3, 2).isEmpty()).isTrue();
+    }
+
+    @Test
+    void combinesIntervals() {
+
+        Intervals low = Intervals.of(Long.MIN_VALUE, 4);
+        Intervals high = Intervals.of(10, Long.MAX_VALUE);
+
+        assertThat(low.union(high)).hasToString("[-inf, 4] | [10, inf]");
+        assertThat(low.union(high).complement()).isEqualTo(Intervals.of(5, 9));
+        assertThat(low.union(Intervals.of(5, 9)).union(high)).isEqualTo(Intervals.all());
+        assertThat(low.intersection(high)).isEqualTo(Intervals.none());
+        assertThat(Intervals.all().complement()).isEqualTo(Intervals.none());
+        assertThat(Intervals.none().complement()).isEqualTo(Intervals.all());
+        assertThat(high.complement()).isEqualTo(Intervals.of(Long.MIN_VALUE, 9));
+        assertThat(ResultCategory.gt(3).and(ResultCategory.le(7)).not()).hasToString("[-inf, 3] | [8, inf]");
+    }
+
+    @Test
+    void combinesLikeSetsOfResults() {
+
+        Random random = new Random(7);
+        for (int n = 0; n < 200; n++) {
+            Intervals first = Intervals.of(random.ints(random.nextInt(8), -10, 10).toArray());
+            Intervals second = Intervals.of(random.ints(random.nextInt(8), -10, 10).toArray())
+                .union(Intervals.of(random.nextInt(20) - 10, random.nextInt(20) - 10));
+
+            IntStream.rangeClosed(-12, 12).forEach(result -> {
+                assertThat(first.union(second).contains(result))
+                    .isEqualTo(first.contains(result) || second.contains(result));
+                assertThat(first.intersection(second).contains(result))
+                    .isEqualTo(first.contains(result) && second.contains(result));
+                assertThat(first.complement().contains(result)).isEqualTo(!first.contains(result));
+            });
+            assertThat(first.complement().complement()).isEqualTo(first);
+        }
+    }
+}
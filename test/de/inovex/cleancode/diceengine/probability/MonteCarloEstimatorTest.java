@@ -0,0 +1,148 @@
+package de.inovex.cleancode.diceengine.probability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import de.inovex.cleancode.diceengine.Dice;
+
+public class MonteCarloEstimatorTest {
+
+    private final Dice threeSixSidedDice = Dice.define().withDice(3).withSides(6).create();
+
+    private final Dice oneFourSidedDice = Dice.define().withSides(4).withMod(-1).create();
+
+    @Test
+    void estimatesWithinTheErrorBound() {
+
+        MonteCarloEstimator estimator = MonteCarloEstimator.define()
+            .withWorkers(4)
+            .withTargetWidth(0.005)
+            .withSeed(42)
+            .create();
+
+        MonteCarloEstimator.Estimate estimate = estimator.estimate(ResultCategory.ge(10), threeSixSidedDice);
+
+        assertThat(estimate.errorBound()).isLessThanOrEqualTo(0.005);
+        assertThat(estimate.probability()).isCloseTo(0.625, within(2 * estimate.errorBound()));
+        assertThat(estimate.samples()).isPositive();
+    }
+
+    @Test
+    void estimatesManyCategoriesFromTheSameSamples() {
+
+        MonteCarloEstimator estimator = MonteCarloEstimator.define()
+            .withTargetWidth(0.01)
+            .withSeed(7)
+            .create();
+
+        MonteCarloEstimator.Estimate[] estimates = estimator.estimates(
+            List.of(
+                ResultCategory.lt(3),
+                ResultCategory.le(2),
+                ResultCategory.le(10),
+                ResultCategory.gt(Integer.MAX_VALUE),
+                ResultCategory.ge(Integer.MIN_VALUE)),
+            threeSixSidedDice, oneFourSidedDice);
+
+        assertThat(estimates[0].probability()).isEqualTo(0.0);
+        assertThat(estimates[1].probability()).isEqualTo(0.0);
+        assertThat(estimates[2].probability()).isCloseTo(280 / 864.0, within(2 * estimates[2].errorBound()));
+        assertThat(estimates[3].probability()).isEqualTo(0.0);
+        assertThat(estimates[4].probability()).isEqualTo(1.0);
+        assertThat(estimates).extracting(MonteCarloEstimator.Estimate::samples).containsOnly(estimates[0].samples());
+    }
+
+    @Test
+    void estimatesPoolsOfManyPossibleResults() {
+
+        MonteCarloEstimator estimator = MonteCarloEstimator.define()
+            .withTargetWidth(0.01)
+            .withSeed(11)
+            .create();
+        Dice manySidedDice = Dice.define().withSides(1_000_000_000).create();
+
+        // histograms hold a bucket per category bound, not a count per possible result
+        MonteCarloEstimator.Estimate[] estimates = estimator.estimates(
+            List.of(ResultCategory.le(250_000_000), ResultCategory.between(100_000_000, 400_000_000).not()),
+            manySidedDice, oneFourSidedDice);
+
+        assertThat(estimates[0].probability()).isCloseTo(0.25, within(2 * estimates[0].errorBound()));
+        assertThat(estimates[1].probability()).isCloseTo(0.7, within(2 * estimates[1].errorBound()));
+    }
+
+    @Test
+    void reproducesEstimatesOfEqualSeeds() {
+
+        MonteCarloEstimator.EstimatorDefinition definition = MonteCarloEstimator.define()
+            .withWorkers(3)
+            .withMaxSamples(100_000)
+            .withTargetWidth(0.0)
+            .withSeed(1234);
+
+        MonteCarloEstimator.Estimate first = definition.create().estimate(ResultCategory.eq(10), threeSixSidedDice);
+        MonteCarloEstimator.Estimate second = definition.withForkJoinPool(new ForkJoinPool(2)).create()
+            .estimate(ResultCategory.eq(10), threeSixSidedDice);
+
+        assertThat(first.samples()).isEqualTo(100_000);
+        assertThat(second).isEqualTo(first);
+    }
+
+    @Test
+    void stopsAtTheTimeBudget() {
+
+        MonteCarloEstimator estimator = MonteCarloEstimator.define()
+            .withTargetWidth(0.0)
+            .withTimeBudget(Duration.ofMillis(200))
+            .create();
+
+        long start = System.nanoTime();
+        MonteCarloEstimator.Estimate estimate = estimator.estimate(ResultCategory.ge(10), threeSixSidedDice);
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+        assertThat(estimate.samples()).isPositive();
+        assertThat(estimate.errorBound()).isPositive();
+    }
+
+    @Test
+    void estimatesNothingWithoutDice() {
+
+        assertThat(MonteCarloEstimator.define().create().estimates(List.of(ResultCategory.ge(0))))
+            .containsExactly(new MonteCarloEstimator.Estimate(0.0, 0.0, 0));
+    }
+
+    @Test
+    void estimatesLargePoolsOfCalculator() {
+
+        ResultProbabilityCalculator calculator = ResultProbabilityCalculator.define()
+            .withMonteCarlo(MonteCarloEstimator.define().withTargetWidth(0.01).withSeed(3).create())
+            .create();
+        Dice largePool = Dice.define().withDice(2000).withSides(20).create();
+
+        assertThat(calculator.probability(ResultCategory.le(21000), largePool)).isCloseTo(0.5, within(0.03));
+        assertThat(calculator.probability(ResultCategory.eq(10), threeSixSidedDice)).isEqualTo(27 / 216.0);
+    }
+
+    @Test
+    void cannotCreateInvalidEstimator() {
+
+        assertThatThrownBy(() -> MonteCarloEstimator.define().withWorkers(0).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MonteCarloEstimator.define().withTargetWidth(-0.1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MonteCarloEstimator.define().withTimeBudget(Duration.ofSeconds(-1)).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MonteCarloEstimator.define().withMaxSamples(0).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MonteCarloEstimator.define().withConfidence(1.0).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MonteCarloEstimator.define().withForkJoinPool(null).create())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
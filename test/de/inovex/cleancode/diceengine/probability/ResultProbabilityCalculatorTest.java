@@ -1,8 +1,14 @@
 package de.inovex.cleancode.diceengine.probability;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -10,6 +16,9 @@ import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 
 import de.inovex.cleancode.diceengine.Dice;
+import de.inovex.cleancode.diceengine.DiceExpression;
+import de.inovex.cleancode.diceengine.DicePool;
+import de.inovex.cleancode.diceengine.LruCache;
 
 public class ResultProbabilityCalculatorTest {
 
@@ -160,6 +169,317 @@ public class ResultProbabilityCalculatorTest {
         assertThat(calculator.probability(ResultCategory.eq(10), oneFourSidedDice, twoThreeSidedDice)).isEqualTo(1 / overall);
     }
 
+    @Test
+    public void reusesDistributionsOfEqualPools() {
+
+        ResultProbabilityCalculator cachingCalculator = new ResultProbabilityCalculator(2);
+        Dice twoFourSidedDice = Dice.define().withDice(2).withSides(4).withMod(3).create();
+
+        assertThat(cachingCalculator.probability(ResultCategory.eq(8), oneFourSidedDice, twoThreeSidedDice))
+            .isEqualTo(6 / 36.0);
+        assertThat(cachingCalculator.probability(ResultCategory.eq(8), twoThreeSidedDice, oneFourSidedDice))
+            .isEqualTo(6 / 36.0);
+        assertThat(cachingCalculator.probability(ResultCategory.eq(19), twoFourSidedDice, oneFourSidedDice, oneFourSidedDice))
+            .isEqualTo(1 / 256.0);
+
+        assertThat(cachingCalculator.cacheStatistics()).isEqualTo(new LruCache.Statistics(1, 2, 0, 2, 2));
+    }
+
+    @Test
+    public void calculatesProbabilitiesOfManyCategoriesAtOnce() {
+
+        Dice modifiedDice = Dice.define().withDice(2).withSides(3).withMod(-2).create();
+
+        assertThat(calculator.probabilities(
+            List.of(
+                ResultCategory.eq(Integer.MIN_VALUE),
+                ResultCategory.lt(Integer.MIN_VALUE),
+                ResultCategory.eq(1),
+                ResultCategory.lt(1),
+                ResultCategory.le(1),
+                ResultCategory.gt(1),
+                ResultCategory.ge(1),
+                ResultCategory.gt(Integer.MAX_VALUE)),
+            oneFourSidedDice, modifiedDice))
+            .containsExactly(0.0, 0.0, 1 / 36.0, 0.0, 1 / 36.0, 35 / 36.0, 1.0, 0.0);
+
+        assertThat(calculator.probabilities(List.of(), oneFourSidedDice)).isEmpty();
+        assertThat(calculator.probabilities(List.of(ResultCategory.ge(0), ResultCategory.le(0)))).containsExactly(0.0, 0.0);
+    }
+
+    @Test
+    public void calculatesProbabilityForLargePools() {
+
+        Dice fiveHundredTwentySidedDice = Dice.define().withDice(500).withSides(20).create();
+
+        assertThat(calculator.probability(ResultCategory.ge(500), fiveHundredTwentySidedDice)).isEqualTo(1.0);
+        assertThat(calculator.probability(ResultCategory.gt(10000), fiveHundredTwentySidedDice)).isEqualTo(0.0);
+        assertThat(calculator.probability(ResultCategory.le(5250), fiveHundredTwentySidedDice, oneFourSidedDice))
+            .isCloseTo(0.5, within(0.01));
+    }
+
+    @Test
+    public void calculatesProbabilityOfDicePools() {
+
+        DicePool pool = new DicePool(oneFourSidedDice, twoThreeSidedDice, oneEightSidedDice);
+        pool.remove(oneEightSidedDice);
+
+        IntStream.rangeClosed(-1, 12)
+            .mapToObj(ResultCategory::le)
+            .forEach(result -> assertThat(calculator.probability(result, pool))
+                .describedAs("result %s %d", result.operator().name(), result.value())
+                .isEqualTo(calculator.probability(result, oneFourSidedDice, twoThreeSidedDice)));
+
+        assertThat(calculator.probabilities(List.of(ResultCategory.ge(0)), new DicePool())).containsExactly(0.0);
+    }
+
+    @Test
+    public void calculatesProbabilityOfDiceExpressions() {
+
+        DiceExpression expression = DiceExpression.compile("2d3+d4");
+
+        IntStream.rangeClosed(-1, 12)
+            .mapToObj(ResultCategory::le)
+            .forEach(result -> assertThat(calculator.probability(result, expression))
+                .describedAs("result %s %d", result.operator().name(), result.value())
+                .isEqualTo(calculator.probability(result, oneFourSidedDice, twoThreeSidedDice)));
+
+        assertThat(calculator.probabilities(
+            List.of(ResultCategory.eq(1), ResultCategory.eq(3)), DiceExpression.compile("3")))
+            .containsExactly(0.0, 1.0);
+        assertThat(calculator.probability(ResultCategory.eq(1), DiceExpression.compile("2d3+d4-2"))).isEqualTo(1 / 36.0);
+    }
+
+    @Test
+    public void calculatesProbabilityOfKeptDice() {
+
+        Dice fourSixSidedDropLowest = Dice.define().withDice(4).withSides(6).withDropLowest(1).create();
+        Dice twoTwentySidedKeepHighest = Dice.define().withDice(2).withSides(20).withKeepHighest(1).withMod(1).create();
+
+        assertThat(calculator.probability(ResultCategory.eq(18), fourSixSidedDropLowest)).isEqualTo(21 / 1296.0);
+        assertThat(calculator.probability(ResultCategory.eq(21), twoTwentySidedKeepHighest)).isEqualTo(39 / 400.0);
+        assertThat(calculator.probability(ResultCategory.le(12), fourSixSidedDropLowest, oneFourSidedDice))
+            .isEqualTo(fourSixSidedDropLowest.distribution().add(oneFourSidedDice.distribution()).probabilityAtMost(12));
+
+        Dice manyKeptDice = Dice.define().withDice(100).withSides(20).withKeepHighest(3).create();
+        Dice manyDice = Dice.define().withDice(900).withSides(20).create();
+        assertThat(calculator.probability(ResultCategory.ge(9510), manyDice, manyKeptDice))
+            .isCloseTo(0.5, within(0.01));
+    }
+
+    @Test
+    public void calculatesProbabilityOfRerolledAndExplodingDice() {
+
+        Dice explodingDice = Dice.define().withDice(3).withSides(6).withExplosions(2).withMod(1).create();
+        Dice rerolledDice = Dice.define().withDice(2).withSides(8).withRerollOnce(2).create();
+
+        IntStream.rangeClosed(0, 60)
+            .mapToObj(ResultCategory::le)
+            .forEach(result -> assertThat(calculator.probability(result, explodingDice, rerolledDice, oneFourSidedDice))
+                .describedAs("result %s %d", result.operator().name(), result.value())
+                .isCloseTo(explodingDice.distribution()
+                    .add(rerolledDice.distribution())
+                    .add(oneFourSidedDice.distribution())
+                    .probabilityAtMost(result.value()), within(1e-15)));
+        assertThat(calculator.probability(ResultCategory.eq(4), explodingDice)).isEqualTo(1 / 216.0);
+    }
+
+    @Test
+    public void calculatesProbabilityOfCompoundCategories() {
+
+        Dice twoSixSidedDice = Dice.define().withDice(2).withSides(6).withMod(1).create();
+
+        assertThat(calculator.probability(ResultCategory.between(7, 9), twoSixSidedDice)).isEqualTo(16 / 36.0);
+        assertThat(calculator.probability(ResultCategory.in(3, 13, 8), twoSixSidedDice)).isEqualTo(8 / 36.0);
+        assertThat(calculator.probability(ResultCategory.le(4).or(ResultCategory.ge(12)), twoSixSidedDice))
+            .isCloseTo(6 / 36.0, within(1e-15));
+        assertThat(calculator.probability(ResultCategory.between(3, 10).and(ResultCategory.eq(8).not()), twoSixSidedDice))
+            .isCloseTo(24 / 36.0, within(1e-15));
+        assertThat(calculator.probabilities(
+            List.of(ResultCategory.lt(0).and(ResultCategory.gt(0)), ResultCategory.eq(0).not()), twoSixSidedDice))
+            .containsExactly(0.0, 1.0);
+
+        Dice manyDice = Dice.define().withDice(900).withSides(20).create();
+        Dice manyKeptDice = Dice.define().withDice(100).withSides(20).withKeepHighest(3).create();
+        ResultFilter tails = ResultCategory.between(9400, 9600).not();
+        assertThat(calculator.probability(tails, manyDice, manyKeptDice))
+            .isCloseTo(calculator.probability(ResultCategory.lt(9400), manyDice, manyKeptDice)
+                + calculator.probability(ResultCategory.gt(9600), manyDice, manyKeptDice), within(1e-12));
+    }
+
+    @Test
+    public void calculatesContestedRolls() {
+
+        Dice threeSixSidedDice = Dice.define().withDice(3).withSides(6).create();
+        Dice twoTenSidedDice = Dice.define().withDice(2).withSides(10).withMod(-1).create();
+
+        double win = 0.0;
+        double tie = 0.0;
+        for (int a = 3; a <= 18; a++) {
+            for (int d = 1; d <= 19; d++) {
+                double probability = threeSixSidedDice.distribution().probability(a)
+                    * twoTenSidedDice.distribution().probability(d);
+                win += a > d ? probability : 0.0;
+                tie += a == d ? probability : 0.0;
+            }
+        }
+        Contest contest = calculator.contest(List.of(threeSixSidedDice), List.of(twoTenSidedDice));
+        assertThat(contest.win()).isCloseTo(win, within(1e-12));
+        assertThat(contest.tie()).isCloseTo(tie, within(1e-12));
+        assertThat(contest.loss()).isCloseTo(1.0 - win - tie, within(1e-12));
+        assertThat(calculator.contest(new DicePool(threeSixSidedDice), new DicePool(twoTenSidedDice)).win())
+            .isCloseTo(win, within(1e-12));
+
+        Contest[] contests = calculator.contests(
+            List.of(oneFourSidedDice, twoThreeSidedDice),
+            List.of(List.of(), List.of(oneEightSidedDice), List.of(Dice.define().withSides(1).withMod(20).create())));
+        assertThat(contests[0]).isEqualTo(new Contest(1.0, 0.0, 0.0));
+        assertThat(contests[1].win() + contests[1].tie() + contests[1].loss()).isCloseTo(1.0, within(1e-12));
+        assertThat(contests[1].tie())
+            .isCloseTo(calculator.contest(List.of(oneEightSidedDice), List.of(oneFourSidedDice, twoThreeSidedDice)).tie(),
+                within(1e-12));
+        assertThat(contests[2]).isEqualTo(new Contest(0.0, 0.0, 1.0));
+
+        Dice manyDice = Dice.define().withDice(1000).withSides(20).create();
+        Contest symmetric = calculator.contest(List.of(manyDice), List.of(manyDice));
+        assertThat(symmetric.win()).isCloseTo(symmetric.loss(), within(1e-9));
+        assertThat(symmetric.win() + symmetric.tie() + symmetric.loss()).isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    public void approximatesOnlyLargePoolsOfManyDiceAnalytically() {
+
+        // few dice with many sides keep their exact or FFT probabilities, although their range is wide
+        Dice manySidedDice = Dice.define().withSides(70000).create();
+        Dice oneSixSidedDice = Dice.define().withSides(6).create();
+        assertThat(calculator.probability(ResultCategory.le(100), manySidedDice, oneSixSidedDice))
+            .isCloseTo(579.0 / 420000, within(1e-12));
+        assertThat(calculator.probability(ResultCategory.eq(35000), manySidedDice, oneSixSidedDice))
+            .isCloseTo(1.0 / 70000, within(1e-12));
+
+        // sums of six dice of at most 6000 are the compositions of 6000 into seven positive parts
+        Dice sixDice = Dice.define().withSides(30000).withDice(6).create();
+        double compositions = 1.0;
+        for (int i = 0; i < 6; i++) {
+            compositions *= (6000.0 - i) / (30000.0 * (i + 1));
+        }
+        assertThat(calculator.probability(ResultCategory.le(6000), sixDice)).isCloseTo(compositions, within(1e-9));
+    }
+
+    @Test
+    public void keepsGroupsOfEqualSidesBeyondIntRange() {
+
+        Dice manyDice = Dice.define().withSides(1).withDice(1_500_000_000).withMod(-1_500_000_000).create();
+
+        assertThat(calculator.probability(ResultCategory.eq(0), manyDice, manyDice)).isEqualTo(1.0);
+        assertThat(calculator.contest(List.of(manyDice, manyDice), List.of(manyDice, manyDice)))
+            .isEqualTo(new Contest(0.0, 1.0, 0.0));
+    }
+
+    @Test
+    public void boundsWorkOfWidePoolsOfFewDice() {
+
+        Dice[] pool = {
+            Dice.define().withDice(20000).withSides(3).create(),
+            Dice.define().withSides(10_000_000).create()};
+        ResultProbabilityCalculator estimatingCalculator = ResultProbabilityCalculator.define()
+            .withMonteCarlo(MonteCarloEstimator.define().withTargetWidth(0.01).withSeed(3).create())
+            .create();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            assertThatThrownBy(() -> calculator.probability(ResultCategory.le(5_040_000), pool))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Monte Carlo");
+            assertThatThrownBy(() -> calculator.contest(List.of(pool), List.of(oneFourSidedDice)))
+                .isInstanceOf(IllegalArgumentException.class);
+            // the sum of the many three-sided dice is about 40000
+            assertThat(estimatingCalculator.probability(ResultCategory.le(5_040_000), pool))
+                .isCloseTo(0.5, within(0.02));
+        });
+    }
+
+    @Test
+    public void approximatesHugePoolsAnalytically() {
+
+        ResultProbabilityCalculator normalCalculator = ResultProbabilityCalculator.define()
+            .withApproximation(ResultProbabilityCalculator.Approximation.NORMAL)
+            .withAnalyticThreshold(0)
+            .create();
+        ResultProbabilityCalculator edgeworthCalculator = ResultProbabilityCalculator.define()
+            .withAnalyticThreshold(0)
+            .create();
+        Dice[] pool = {
+            Dice.define().withDice(100).withSides(6).withMod(3).create(),
+            Dice.define().withDice(20).withSides(10).withExplosions(2).create()};
+        List<ResultFilter> categories = List.of(
+            ResultCategory.le(470), ResultCategory.between(480, 490), ResultCategory.gt(520),
+            ResultCategory.ge(123), ResultCategory.lt(123));
+
+        double[] exact = calculator.probabilities(categories, pool);
+        double[] normal = normalCalculator.probabilities(categories, pool);
+        double[] edgeworth = edgeworthCalculator.probabilities(categories, pool);
+        for (int i = 0; i < exact.length; i++) {
+            assertThat(normal[i]).isCloseTo(exact[i], within(0.02));
+            assertThat(edgeworth[i]).isCloseTo(exact[i], within(1e-4));
+        }
+        assertThat(edgeworth[3]).isEqualTo(1.0);
+        assertThat(edgeworth[4]).isEqualTo(0.0);
+
+        // pools too large for exact counts are approximated by default, without computing any distribution
+        long misses = calculator.cacheStatistics().misses();
+        Dice hugeDice = Dice.define().withDice(10000).withSides(20).create();
+        assertThat(calculator.probability(ResultCategory.le(105000), hugeDice, oneFourSidedDice))
+            .isCloseTo(0.5, within(0.01));
+        assertThat(calculator.cacheStatistics().misses()).isEqualTo(misses);
+    }
+
+    @Test
+    public void calculatesSameProbabilitiesConcurrently() {
+
+        ResultProbabilityCalculator sequentialCalculator = ResultProbabilityCalculator.define()
+            .withCacheCapacity(0)
+            .withParallelThreshold(Integer.MAX_VALUE)
+            .create();
+        ResultProbabilityCalculator parallelCalculator = ResultProbabilityCalculator.define()
+            .withCacheCapacity(0)
+            .withParallelThreshold(0)
+            .withForkJoinPool(new ForkJoinPool(4))
+            .create();
+
+        Dice[] pool = Stream.of(4, 6, 8, 10, 12, 20, 100)
+            .map(sides -> Dice.define().withSides(sides).withDice(3).withMod(1).create())
+            .toArray(Dice[]::new);
+        List<ResultCategory> categories = IntStream.rangeClosed(0, 500)
+            .mapToObj(ResultCategory::le)
+            .toList();
+
+        assertThat(parallelCalculator.probabilities(categories, pool))
+            .containsExactly(sequentialCalculator.probabilities(categories, pool));
+
+        Dice[] largePool = Stream.of(6, 8, 10, 12, 20, 100)
+            .map(sides -> Dice.define().withSides(sides).withDice(400).create())
+            .toArray(Dice[]::new);
+        assertThat(parallelCalculator.probability(ResultCategory.le(24200), largePool))
+            .isCloseTo(sequentialCalculator.probability(ResultCategory.le(24200), largePool), within(1e-12));
+    }
+
+    @Test
+    public void cannotCreateInvalidCalculator() {
+
+        assertThatThrownBy(() -> ResultProbabilityCalculator.define().withCacheCapacity(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultProbabilityCalculator.define().withParallelThreshold(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultProbabilityCalculator.define().withForkJoinPool(null).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultProbabilityCalculator.define().withApproximation(null).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultProbabilityCalculator.define().withAnalyticThreshold(-1).create())
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultProbabilityCalculator.define().withMaxConvolutionSize(0).create())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @FunctionalInterface
     private interface ResultCategoryCreator extends Function<Integer, ResultCategory> { }
 }